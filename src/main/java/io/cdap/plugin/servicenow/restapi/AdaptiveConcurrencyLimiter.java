@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.servicenow.restapi;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Limits the requests in flight to an endpoint, for all the clients of the JVM, to what the endpoint sustains.
+ * The limit grows by one once a limit's worth of requests were answered without slowing down, and shrinks by a
+ * quarter when the endpoint rejects a request with 429 or 503, a request fails on the network, or a response takes
+ * more than twice as long as usual. An overload shows up in all the requests that were in flight when it happened,
+ * hence only the requests sent after the last decrease may shrink the limit again.
+ */
+final class AdaptiveConcurrencyLimiter {
+  private static final ConcurrentMap<String, AdaptiveConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+  private static final int INITIAL_LIMIT = 4;
+  private static final double DECREASE_RATIO = 0.75;
+  private static final double LATENCY_TOLERANCE = 2.0;
+  // The weight of each response in the usual latency, which roughly follows the last hundred responses
+  private static final double LATENCY_SMOOTHING = 0.01;
+  private static final int HTTP_STATUS_SERVICE_UNAVAILABLE = 503;
+
+  private final LongSupplier nanoClock;
+  private int maxLimit;
+  private double limit;
+  private int inFlight;
+  private double usualLatencyNanos;
+  private long lastDecreaseNanos;
+
+  /**
+   * Constructor for AdaptiveConcurrencyLimiter object.
+   *
+   * @param maxLimit The limit the requests in flight never exceed
+   * @param nanoClock The source of the time, in nanoseconds
+   */
+  AdaptiveConcurrencyLimiter(int maxLimit, LongSupplier nanoClock) {
+    this.nanoClock = nanoClock;
+    this.maxLimit = maxLimit;
+    this.limit = Math.min(maxLimit, INITIAL_LIMIT);
+    this.lastDecreaseNanos = nanoClock.getAsLong();
+  }
+
+  /**
+   * Returns the limiter shared by all the requests to the given endpoint, creating it on first use.
+   *
+   * @param endpoint The scheme and authority of the endpoint
+   * @param maxLimit The limit the requests in flight never exceed, the largest one asked for is kept
+   * @return The limiter of the endpoint
+   */
+  static AdaptiveConcurrencyLimiter forEndpoint(String endpoint, int maxLimit) {
+    AdaptiveConcurrencyLimiter limiter = LIMITERS.computeIfAbsent(
+      endpoint, key -> new AdaptiveConcurrencyLimiter(maxLimit, System::nanoTime));
+    limiter.raiseMaxLimit(maxLimit);
+    return limiter;
+  }
+
+  /**
+   * Waits until one more request may be sent to the endpoint. The returned permit must be closed once the request
+   * is over, its response included.
+   *
+   * @return The permit of the request
+   * @throws InterruptedException if interrupted while waiting
+   */
+  Permit acquire() throws InterruptedException {
+    synchronized (this) {
+      while (inFlight >= (int) limit) {
+        wait();
+      }
+      inFlight++;
+    }
+    return new Permit(nanoClock.getAsLong());
+  }
+
+  /**
+   * Returns a permit if one more request may be sent to the endpoint right away, null otherwise.
+   */
+  @Nullable
+  Permit tryAcquire() {
+    synchronized (this) {
+      if (inFlight >= (int) limit) {
+        return null;
+      }
+      inFlight++;
+    }
+    return new Permit(nanoClock.getAsLong());
+  }
+
+  /**
+   * Returns the number of requests that may currently be in flight.
+   */
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  private synchronized void raiseMaxLimit(int maxLimit) {
+    this.maxLimit = Math.max(this.maxLimit, maxLimit);
+  }
+
+  private synchronized void onSample(long startNanos, long latencyNanos, boolean rejected) {
+    boolean overloaded = rejected
+      || (usualLatencyNanos > 0 && latencyNanos > LATENCY_TOLERANCE * usualLatencyNanos);
+    if (!overloaded) {
+      usualLatencyNanos = usualLatencyNanos == 0 ? latencyNanos
+        : usualLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - usualLatencyNanos);
+      limit = Math.min(maxLimit, limit + 1 / limit);
+      notifyAll();
+      return;
+    }
+
+    if (startNanos - lastDecreaseNanos > 0) {
+      limit = Math.max(1, limit * DECREASE_RATIO);
+      lastDecreaseNanos = nanoClock.getAsLong();
+    }
+  }
+
+  private synchronized void release() {
+    inFlight--;
+    notifyAll();
+  }
+
+  /**
+   * The right to have one request in flight. The outcome of the request, reported once its response starts, adjusts
+   * the limit. A permit may be reported and closed from several threads, only the first report and close count.
+   */
+  final class Permit implements Closeable {
+    private final long startNanos;
+    private final AtomicBoolean sampled = new AtomicBoolean();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(long startNanos) {
+      this.startNanos = startNanos;
+    }
+
+    /**
+     * Reports that the response of the request started with the given status.
+     */
+    void onResponse(int httpStatus) {
+      sample(httpStatus == RestAPIRetryPolicy.HTTP_STATUS_TOO_MANY_REQUESTS
+               || httpStatus == HTTP_STATUS_SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Reports that the request failed on the network, as an overloaded endpoint does.
+     */
+    void onFailure() {
+      sample(true);
+    }
+
+    @Override
+    public void close() {
+      if (released.compareAndSet(false, true)) {
+        release();
+      }
+    }
+
+    private void sample(boolean rejected) {
+      if (sampled.compareAndSet(false, true)) {
+        onSample(startNanos, nanoClock.getAsLong() - startNanos, rejected);
+      }
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.servicenow.restapi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops the requests to an endpoint that is down, for all the clients of the JVM, until it is back.
+ * The circuit is closed while the endpoint answers. It opens after 5 failures in a row, or once half of the last 20
+ * requests failed, and requests then wait instead of being sent. Once the circuit has been open for a while it is
+ * half open: a single request is sent to probe the endpoint, closing the circuit if it succeeds and opening it again
+ * for twice as long if it fails. Failures are server side errors (5xx) and network failures, a rate limited request
+ * shows that the endpoint is up.
+ */
+final class CircuitBreaker {
+  private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+  private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+  private static final int MAX_CONSECUTIVE_FAILURES = 5;
+  private static final int WINDOW_SIZE = 20;
+  private static final int MIN_WINDOW_REQUESTS = 10;
+  private static final double MAX_FAILURE_RATE = 0.5;
+  private static final long INITIAL_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final long MAX_OPEN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  // A probe that never reports its outcome must not keep the circuit half open
+  private static final long PROBE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+  /**
+   * The states of the circuit.
+   */
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String endpoint;
+  private final LongSupplier clock;
+  private final boolean[] window = new boolean[WINDOW_SIZE];
+  private State state = State.CLOSED;
+  private int windowRequests;
+  private int windowFailures;
+  private int windowPosition;
+  private int consecutiveFailures;
+  private long openMillis = INITIAL_OPEN_MILLIS;
+  private long openUntilMillis;
+  private long probeStartMillis;
+
+  /**
+   * Constructor for CircuitBreaker object.
+   *
+   * @param endpoint The endpoint, used in the logs
+   * @param clock The source of the time, in milliseconds
+   */
+  CircuitBreaker(String endpoint, LongSupplier clock) {
+    this.endpoint = endpoint;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the circuit breaker shared by all the requests to the given endpoint, creating it on first use.
+   *
+   * @param endpoint The scheme and authority of the endpoint
+   * @return The circuit breaker of the endpoint
+   */
+  static CircuitBreaker forEndpoint(String endpoint) {
+    return BREAKERS.computeIfAbsent(endpoint, key -> new CircuitBreaker(key, System::currentTimeMillis));
+  }
+
+  /**
+   * Waits until a request may be sent to the endpoint. The outcome of the request must then be reported through
+   * {@link #onSuccess()} or {@link #onFailure()}, or {@link #onAbandoned()} if it is not known.
+   *
+   * @param maxWaitMillis The longest time to wait
+   * @return true if the request may be sent, false if the circuit was still open after the longest time to wait
+   * @throws InterruptedException if interrupted while waiting
+   */
+  synchronized boolean acquire(long maxWaitMillis) throws InterruptedException {
+    long deadlineMillis = clock.getAsLong() + maxWaitMillis;
+    long waitMillis;
+    while ((waitMillis = tryAcquire()) > 0) {
+      long remainingMillis = deadlineMillis - clock.getAsLong();
+      if (remainingMillis <= 0) {
+        return false;
+      }
+      // The outcome of a probe wakes the waiting requests up
+      wait(Math.min(waitMillis, remainingMillis));
+    }
+    return true;
+  }
+
+  /**
+   * Returns 0 if a request may be sent to the endpoint now, the time to wait before asking again otherwise. The
+   * outcome of an allowed request must be reported as for {@link #acquire(long)}, as it may be the probe of a half open
+   * circuit.
+   */
+  synchronized long tryAcquire() {
+    long nowMillis = clock.getAsLong();
+    switch (state) {
+      case OPEN:
+        if (nowMillis < openUntilMillis) {
+          return openUntilMillis - nowMillis;
+        }
+        state = State.HALF_OPEN;
+        probeStartMillis = nowMillis;
+        LOG.info("Probing {} after its circuit was open for {} s", endpoint,
+                 TimeUnit.MILLISECONDS.toSeconds(openMillis));
+        return 0;
+      case HALF_OPEN:
+        if (nowMillis - probeStartMillis < PROBE_TIMEOUT_MILLIS) {
+          return PROBE_TIMEOUT_MILLIS - (nowMillis - probeStartMillis);
+        }
+        probeStartMillis = nowMillis;
+        return 0;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Reports that the endpoint answered a request.
+   */
+  synchronized void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      LOG.info("Closing the circuit of {}, the endpoint is answering again", endpoint);
+      state = State.CLOSED;
+      openMillis = INITIAL_OPEN_MILLIS;
+      resetWindow();
+      notifyAll();
+    } else if (state == State.CLOSED) {
+      consecutiveFailures = 0;
+      record(false);
+    }
+  }
+
+  /**
+   * Reports that a request failed on the server or on the network.
+   */
+  synchronized void onFailure() {
+    if (state == State.HALF_OPEN) {
+      openMillis = Math.min(MAX_OPEN_MILLIS, openMillis * 2);
+      open("the probe failed");
+    } else if (state == State.CLOSED) {
+      consecutiveFailures++;
+      record(true);
+      if (consecutiveFailures >= MAX_CONSECUTIVE_FAILURES
+        || (windowRequests >= MIN_WINDOW_REQUESTS && windowFailures >= MAX_FAILURE_RATE * windowRequests)) {
+        open(String.format("%d of the last %d requests failed", windowFailures, windowRequests));
+      }
+    }
+  }
+
+  /**
+   * Reports that a request was not sent after all, or ended without telling whether the endpoint is up. The probe of
+   * a half open circuit is then handed over to the next request right away, rather than after the probe timeout.
+   */
+  synchronized void onAbandoned() {
+    if (state == State.HALF_OPEN) {
+      state = State.OPEN;
+      openUntilMillis = clock.getAsLong();
+      notifyAll();
+    }
+  }
+
+  synchronized State getState() {
+    return state;
+  }
+
+  private void open(String reason) {
+    LOG.warn("Opening the circuit of {} for {} s, {}", endpoint, TimeUnit.MILLISECONDS.toSeconds(openMillis), reason);
+    state = State.OPEN;
+    openUntilMillis = clock.getAsLong() + openMillis;
+    resetWindow();
+    notifyAll();
+  }
+
+  private void record(boolean failure) {
+    if (windowRequests == WINDOW_SIZE) {
+      windowFailures -= window[windowPosition] ? 1 : 0;
+    } else {
+      windowRequests++;
+    }
+    window[windowPosition] = failure;
+    windowFailures += failure ? 1 : 0;
+    windowPosition = (windowPosition + 1) % WINDOW_SIZE;
+  }
+
+  private void resetWindow() {
+    windowRequests = 0;
+    windowFailures = 0;
+    windowPosition = 0;
+    consecutiveFailures = 0;
+  }
+}
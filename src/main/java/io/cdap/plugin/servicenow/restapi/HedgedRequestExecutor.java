@@ -0,0 +1,272 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.servicenow.restapi;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * Sends a copy of a request whose response is slower to start than 95% of the recent responses of the same endpoint,
+ * and keeps whichever response starts first, aborting the other request.
+ * A slow response usually means that the request landed on a busy node of the instance, which its copy is unlikely to
+ * do again. Copies are limited to 5% of the requests, so that they do not add much to the load of an instance that is
+ * slow everywhere, and are only sent once the latency of the endpoint is known.
+ * A copy is a request like any other: it is only sent while the circuit of the endpoint is closed and the limits of
+ * the client and of the endpoint let one more request through right away, and its outcome is reported to them.
+ */
+final class HedgedRequestExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(HedgedRequestExecutor.class);
+  private static final ConcurrentMap<String, HedgedRequestExecutor> EXECUTORS = new ConcurrentHashMap<>();
+  private static final ExecutorService THREADS = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+    .setNameFormat("servicenow-hedged-request-%d")
+    .setDaemon(true)
+    .build());
+  private static final int LATENCY_SAMPLES = 200;
+  private static final int MIN_LATENCY_SAMPLES = 20;
+  private static final double LATENCY_PERCENTILE = 0.95;
+  private static final double MAX_HEDGE_RATIO = 0.05;
+
+  private final long[] latencyNanos = new long[LATENCY_SAMPLES];
+  private int sampleCount;
+  private int samplePosition;
+  private long requests;
+  private long hedges;
+
+  /**
+   * Returns the executor shared by all the requests to the given endpoint, creating it on first use.
+   *
+   * @param endpoint The scheme and authority of the endpoint
+   * @return The executor of the endpoint
+   */
+  static HedgedRequestExecutor forEndpoint(String endpoint) {
+    return EXECUTORS.computeIfAbsent(endpoint, key -> new HedgedRequestExecutor());
+  }
+
+  /**
+   * Executes the request, hedging it with a copy if its response is slow to start.
+   *
+   * @param httpClient The client sending the requests
+   * @param request The request
+   * @param circuitBreaker The circuit breaker of the endpoint, told about the outcome of the copy
+   * @param admission Admits the copy
+   * @return The response that started first
+   * @throws IOException if all the requests sent failed
+   */
+  CloseableHttpResponse execute(CloseableHttpClient httpClient, HttpGet request, CircuitBreaker circuitBreaker,
+                                CopyAdmission admission) throws IOException {
+    CompletionService<Attempt> completion = new ExecutorCompletionService<>(THREADS);
+    AtomicBoolean decided = new AtomicBoolean();
+    List<HttpGet> sent = new ArrayList<>();
+    HttpGet winner = null;
+    long hedgeDelayNanos = startRequest();
+
+    try {
+      submit(completion, httpClient, request, decided, sent, null, null);
+      Future<Attempt> completed = hedgeDelayNanos < 0 ? completion.take()
+        : completion.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+      if (completed == null) {
+        AdaptiveConcurrencyLimiter.Permit permit = admitHedge(circuitBreaker, admission);
+        if (permit != null) {
+          LOG.debug("No response from {} after {} ms, sending a copy of the request", request.getURI().getHost(),
+                    TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+          HttpGet copy = new HttpGet(request.getURI());
+          copy.setHeaders(request.getAllHeaders());
+          submit(completion, httpClient, copy, decided, sent, circuitBreaker, permit);
+        }
+        completed = completion.take();
+      }
+
+      IOException failure = null;
+      int pending = sent.size();
+      while (true) {
+        pending--;
+        try {
+          Attempt attempt = completed.get();
+          if (attempt.response != null) {
+            winner = attempt.request;
+            return attempt.response;
+          }
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (failure == null) {
+            failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+          }
+        }
+        if (pending == 0) {
+          throw failure;
+        }
+        completed = completion.take();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a response");
+    } finally {
+      // The requests that lost are aborted, a response that still arrives for one of them is closed right away
+      decided.set(true);
+      for (HttpGet get : sent) {
+        if (get != winner) {
+          get.abort();
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends a request on a thread of the pool. The outcome of a copy is reported to the circuit breaker and through
+   * its permit here, the caller reports the one of the original request. The permit of a copy is released once the
+   * race is decided, a copy that wins takes over the permit of the original request, which is aborted.
+   */
+  private void submit(CompletionService<Attempt> completion, CloseableHttpClient httpClient, HttpGet request,
+                      AtomicBoolean decided, List<HttpGet> sent, @Nullable CircuitBreaker circuitBreaker,
+                      @Nullable AdaptiveConcurrencyLimiter.Permit permit) {
+    sent.add(request);
+    completion.submit(() -> {
+      long startNanos = System.nanoTime();
+      CloseableHttpResponse response;
+      try {
+        response = httpClient.execute(request);
+      } catch (IOException e) {
+        // A request that lost the race is aborted, which says nothing about the endpoint
+        if (permit != null) {
+          if (!decided.get() && RestAPIRetryPolicy.isRetryable(e)) {
+            circuitBreaker.onFailure();
+            permit.onFailure();
+          }
+          permit.close();
+        }
+        throw e;
+      }
+
+      int httpStatus = response.getStatusLine().getStatusCode();
+      if (permit != null) {
+        permit.onResponse(httpStatus);
+        permit.close();
+        if (httpStatus >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+          circuitBreaker.onFailure();
+        } else {
+          circuitBreaker.onSuccess();
+        }
+      }
+      if (!decided.compareAndSet(false, true)) {
+        response.close();
+        return new Attempt(request, null);
+      }
+      if (httpStatus < HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+        recordLatency(System.nanoTime() - startNanos);
+      }
+      return new Attempt(request, response);
+    });
+  }
+
+  /**
+   * Returns the permit of a copy if one may be sent now, null otherwise.
+   */
+  @Nullable
+  private AdaptiveConcurrencyLimiter.Permit admitHedge(CircuitBreaker circuitBreaker, CopyAdmission admission) {
+    // A copy would only add to the load of an endpoint that is failing, or take the place of the probe
+    if (circuitBreaker.getState() != CircuitBreaker.State.CLOSED || !startHedge()) {
+      return null;
+    }
+
+    AdaptiveConcurrencyLimiter.Permit permit = admission.tryAdmit();
+    if (permit == null) {
+      cancelHedge();
+    }
+    return permit;
+  }
+
+  /**
+   * Counts a request and returns the time after which it is hedged, -1 if the latency of the endpoint is not known
+   * yet.
+   */
+  private synchronized long startRequest() {
+    requests++;
+    if (sampleCount < MIN_LATENCY_SAMPLES) {
+      return -1;
+    }
+
+    long[] samples = Arrays.copyOf(latencyNanos, sampleCount);
+    Arrays.sort(samples);
+    return samples[(int) Math.ceil(LATENCY_PERCENTILE * sampleCount) - 1];
+  }
+
+  private synchronized boolean startHedge() {
+    if (hedges + 1 > MAX_HEDGE_RATIO * requests) {
+      return false;
+    }
+    hedges++;
+    return true;
+  }
+
+  private synchronized void cancelHedge() {
+    hedges--;
+  }
+
+  private synchronized void recordLatency(long nanos) {
+    latencyNanos[samplePosition] = nanos;
+    samplePosition = (samplePosition + 1) % LATENCY_SAMPLES;
+    sampleCount = Math.min(LATENCY_SAMPLES, sampleCount + 1);
+  }
+
+  /**
+   * Admits the copy of a request within the limits of the client and of the endpoint.
+   */
+  interface CopyAdmission {
+
+    /**
+     * Returns the permit of the copy if it may be sent right away, null otherwise.
+     */
+    @Nullable
+    AdaptiveConcurrencyLimiter.Permit tryAdmit();
+  }
+
+  /**
+   * A request and its response, null if another request responded first.
+   */
+  private static final class Attempt {
+    private final HttpGet request;
+    private final CloseableHttpResponse response;
+
+    private Attempt(HttpGet request, @Nullable CloseableHttpResponse response) {
+      this.request = request;
+      this.response = response;
+    }
+  }
+}
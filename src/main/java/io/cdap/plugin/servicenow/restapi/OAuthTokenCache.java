@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.restapi;
+
+import com.google.common.base.Strings;
+import org.apache.oltu.oauth2.client.OAuthClient;
+import org.apache.oltu.oauth2.client.URLConnectionClient;
+import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
+import org.apache.oltu.oauth2.client.response.OAuthJSONAccessTokenResponse;
+import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+import org.apache.oltu.oauth2.common.message.types.GrantType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A JVM-wide cache of OAuth access tokens keyed by token endpoint, client id and user.
+ * Tokens are reused until shortly before they expire and are then renewed with the refresh token, falling back to the
+ * password grant. Concurrent callers asking for the same key wait for a single renewal instead of each minting a token.
+ */
+final class OAuthTokenCache {
+  private static final Logger LOG = LoggerFactory.getLogger(OAuthTokenCache.class);
+  private static final long REFRESH_MARGIN_MILLIS = TimeUnit.SECONDS.toMillis(60);
+  // Used when the token endpoint does not return expires_in
+  private static final long DEFAULT_EXPIRES_IN_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+  private static final ConcurrentMap<String, TokenHolder> TOKENS = new ConcurrentHashMap<>();
+
+  private OAuthTokenCache() {
+  }
+
+  /**
+   * Returns a valid access token for the given credentials, generating or refreshing it when needed.
+   *
+   * @param tokenUrl The OAuth token endpoint
+   * @param clientId The Client Id for ServiceNow
+   * @param clientSecret The Client Secret for ServiceNow
+   * @param user The user id for ServiceNow
+   * @param password The password for ServiceNow
+   * @return The access token
+   * @throws OAuthSystemException
+   * @throws OAuthProblemException
+   */
+  static String getAccessToken(String tokenUrl, String clientId, String clientSecret, String user, String password)
+    throws OAuthSystemException, OAuthProblemException {
+    return getHolder(tokenUrl, clientId, clientSecret, user, password).getAccessToken();
+  }
+
+  /**
+   * Returns the holder of the tokens of the given credentials, creating it on first use.
+   */
+  static TokenHolder getHolder(String tokenUrl, String clientId, String clientSecret, String user, String password) {
+    // A holder whose secrets changed is replaced, so that its tokens are never renewed with the old secrets
+    String key = String.join("|", tokenUrl, clientId, user);
+    return TOKENS.compute(key, (k, current) -> current != null && current.hasSecrets(clientSecret, password) ? current
+      : new TokenHolder(tokenUrl, clientId, clientSecret, user, password, TokenHolder::requestToken,
+                        System::currentTimeMillis));
+  }
+
+  /**
+   * Forgets the given access token, so that the next caller obtains a new one. Used when the server rejects a token
+   * before its advertised expiry.
+   *
+   * @param accessToken The access token to be discarded
+   */
+  static void invalidate(String accessToken) {
+    TOKENS.values().forEach(holder -> holder.invalidate(accessToken));
+  }
+
+  /**
+   * Sends a request to the OAuth token endpoint.
+   */
+  interface TokenRequester {
+
+    /**
+     * Returns the response of the token endpoint to the request.
+     */
+    OAuthJSONAccessTokenResponse request(OAuthClientRequest request) throws OAuthSystemException,
+      OAuthProblemException;
+  }
+
+  /**
+   * Holds the current token for a single set of credentials.
+   */
+  static final class TokenHolder {
+    private final String tokenUrl;
+    private final String clientId;
+    private final String clientSecret;
+    private final String user;
+    private final String password;
+    private final TokenRequester requester;
+    private final LongSupplier clock;
+
+    private String accessToken;
+    private String refreshToken;
+    private long expiresAtMillis;
+
+    /**
+     * Constructor for TokenHolder object.
+     *
+     * @param tokenUrl The OAuth token endpoint
+     * @param clientId The Client Id for ServiceNow
+     * @param clientSecret The Client Secret for ServiceNow
+     * @param user The user id for ServiceNow
+     * @param password The password for ServiceNow
+     * @param requester Sends the requests to the token endpoint
+     * @param clock The source of the time, in milliseconds
+     */
+    TokenHolder(String tokenUrl, String clientId, String clientSecret, String user, String password,
+                TokenRequester requester, LongSupplier clock) {
+      this.tokenUrl = tokenUrl;
+      this.clientId = clientId;
+      this.clientSecret = clientSecret;
+      this.user = user;
+      this.password = password;
+      this.requester = requester;
+      this.clock = clock;
+    }
+
+    /**
+     * Returns true if the tokens of this holder are obtained with the given secrets.
+     */
+    boolean hasSecrets(String clientSecret, String password) {
+      return this.clientSecret.equals(clientSecret) && this.password.equals(password);
+    }
+
+    synchronized String getAccessToken() throws OAuthSystemException, OAuthProblemException {
+      if (accessToken != null && clock.getAsLong() < expiresAtMillis - REFRESH_MARGIN_MILLIS) {
+        return accessToken;
+      }
+
+      OAuthJSONAccessTokenResponse response = null;
+      if (!Strings.isNullOrEmpty(refreshToken)) {
+        try {
+          response = requester.request(OAuthClientRequest.tokenLocation(tokenUrl)
+                                         .setGrantType(GrantType.REFRESH_TOKEN)
+                                         .setClientId(clientId)
+                                         .setClientSecret(clientSecret)
+                                         .setRefreshToken(refreshToken)
+                                         .buildBodyMessage());
+        } catch (OAuthProblemException e) {
+          LOG.debug("Unable to refresh the access token, requesting a new one", e);
+        }
+      }
+
+      if (response == null) {
+        response = requester.request(OAuthClientRequest.tokenLocation(tokenUrl)
+                                       .setGrantType(GrantType.PASSWORD)
+                                       .setClientId(clientId)
+                                       .setClientSecret(clientSecret)
+                                       .setUsername(user)
+                                       .setPassword(password)
+                                       .buildBodyMessage());
+      }
+
+      Long expiresIn = response.getExpiresIn();
+      accessToken = response.getAccessToken();
+      refreshToken = Strings.isNullOrEmpty(response.getRefreshToken()) ? refreshToken : response.getRefreshToken();
+      expiresAtMillis = clock.getAsLong() +
+        TimeUnit.SECONDS.toMillis(expiresIn == null ? DEFAULT_EXPIRES_IN_SECONDS : expiresIn);
+      return accessToken;
+    }
+
+    synchronized void invalidate(String token) {
+      if (token != null && token.equals(accessToken)) {
+        accessToken = null;
+      }
+    }
+
+    private static OAuthJSONAccessTokenResponse requestToken(OAuthClientRequest request)
+      throws OAuthSystemException, OAuthProblemException {
+      OAuthClient client = new OAuthClient(new URLConnectionClient());
+      return client.accessToken(request, OAuth.HttpMethod.POST, OAuthJSONAccessTokenResponse.class);
+    }
+  }
+}
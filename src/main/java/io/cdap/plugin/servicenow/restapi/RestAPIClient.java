@@ -14,49 +14,207 @@
  * the License.
  */
 
+
 package io.cdap.plugin.servicenow.restapi;
 
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.oltu.oauth2.client.OAuthClient;
-import org.apache.oltu.oauth2.client.URLConnectionClient;
-import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
-import org.apache.oltu.oauth2.client.response.OAuthJSONAccessTokenResponse;
-import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.util.EntityUtils;
 import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
 import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
-import org.apache.oltu.oauth2.common.message.types.GrantType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 
 /**
  * An abstract class to call Rest API.
+ * All the clients in a JVM share a single pool of keep-alive connections, hence every client must be closed once it
+ * is no longer needed.
+ * Requests that were rate limited, failed on the server or on the network are sent again as decided by
+ * {@link RestAPIRetryPolicy}, within a budget of retries shared by all the requests of the client. A request that is
+ * still failing once the budget is spent fails with an {@link IOException}.
+ * The requests in flight to an endpoint are limited by {@link AdaptiveConcurrencyLimiter}, for all the clients of the
+ * JVM, so that the tasks of a pipeline do not overload the instance they read from. A client may also be given a
+ * rate of requests it never exceeds, retries and hedged copies included. Requests to an endpoint that keeps failing
+ * wait on its {@link CircuitBreaker} rather than spending their retries. Streamed requests may be hedged with a copy
+ * when their response is slow to start, see {@link HedgedRequestExecutor}.
+ * A client may also send requests without waiting for their responses, over a few connections of its own, so that a
+ * single thread keeps several requests in flight, see {@link #executeGetAsync(RestAPIRequest)}.
  */
-public abstract class RestAPIClient {
+public abstract class RestAPIClient implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(RestAPIClient.class);
+  private static final String HEADER_AUTHORIZATION = "Authorization";
+  private static final String BEARER_PREFIX = "Bearer ";
+  // A client reads a single split, hence this is the number of retries a split may spend
+  private static final int MAX_RETRIES = 10;
+  // How long a request waits for the circuit of its endpoint to close before failing
+  private static final long MAX_CIRCUIT_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+  private final SharedHttpClient sharedHttpClient;
+  private final int maxConnectionsPerRoute;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final RestAPIRetryPolicy retryPolicy = new RestAPIRetryPolicy(new Random());
+  private final AtomicInteger retriesLeft = new AtomicInteger(MAX_RETRIES);
+  private volatile long pausedUntilMillis;
+  private volatile RateLimiter rateLimiter;
+  private volatile boolean hedgeStreamingRequests;
+  private volatile CloseableHttpAsyncClient asyncClient;
+
+  /**
+   * Constructor for RestAPIClient object.
+   *
+   * @param maxConnectionsPerRoute The maximum number of pooled connections per route
+   */
+  protected RestAPIClient(int maxConnectionsPerRoute) {
+    this.sharedHttpClient = SharedHttpClient.acquire(maxConnectionsPerRoute);
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
   /**
    * Executes the Rest API request and returns the response.
    *
    * @param request the Rest API request
    * @return an instance of RestAPIResponse object.
+   * @throws IOException if the request could not be executed, or was still failing once the retries were spent
    */
-  protected RestAPIResponse executeGet(RestAPIRequest request) {
-    HttpGet httpGet = new HttpGet(request.getUrl());
-    request.getHeaders().entrySet().forEach(e -> httpGet.addHeader(e.getKey(), e.getValue()));
-    RestAPIResponse apiResponse = null;
+  protected RestAPIResponse executeGet(RestAPIRequest request) throws IOException {
+    try (RestAPIStreamingResponse response = execute(request, false)) {
+      return RestAPIResponse.parse(response.getHttpResponse(), request.getResponseHeaders());
+    }
+  }
 
-    try (CloseableHttpClient httpClient = HttpClientBuilder.create().build()) {
-      try (CloseableHttpResponse httpResponse = httpClient.execute(httpGet)) {
-        apiResponse = RestAPIResponse.parse(httpResponse, request.getResponseHeaders());
-      }
-    } catch (Exception e) {
-      apiResponse = RestAPIResponse.defaultErrorResponse(e.getMessage());
+  /**
+   * Executes the Rest API request and returns the response without reading its body. The caller is responsible for
+   * closing the returned response.
+   *
+   * @param request the Rest API request
+   * @return an instance of RestAPIStreamingResponse object.
+   * @throws IOException if the request could not be executed, or was still failing once the retries were spent
+   */
+  protected RestAPIStreamingResponse executeGetStreaming(RestAPIRequest request) throws IOException {
+    return execute(request, hedgeStreamingRequests);
+  }
+
+  /**
+   * Limits the requests sent by this client, retries and hedged copies included, to the given rate.
+   *
+   * @param requestsPerSecond The maximum number of requests per second
+   */
+  public void setRequestsPerSecond(double requestsPerSecond) {
+    this.rateLimiter = RateLimiter.create(requestsPerSecond);
+  }
+
+  /**
+   * Sets whether the streamed requests of this client are hedged with a copy when their response is slow to start.
+   *
+   * @param hedgeStreamingRequests true to hedge the streamed requests
+   */
+  public void setHedgeStreamingRequests(boolean hedgeStreamingRequests) {
+    this.hedgeStreamingRequests = hedgeStreamingRequests;
+  }
+
+  /**
+   * Starts the non-blocking engine of this client, which keeps up to the given number of requests in flight over as
+   * many connections of its own, served by a single I/O thread.
+   *
+   * @param connections The number of connections of the engine
+   */
+  public synchronized void startAsyncEngine(int connections) {
+    if (asyncClient != null) {
+      return;
+    }
+
+    CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+      .setMaxConnTotal(connections)
+      .setMaxConnPerRoute(connections)
+      .setDefaultIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+      .setThreadFactory(new ThreadFactoryBuilder().setNameFormat("servicenow-async-io-%d").setDaemon(true).build())
+      .build();
+    client.start();
+    asyncClient = client;
+  }
+
+  /**
+   * Sends the Rest API request without waiting for its response, if the engine started by
+   * {@link #startAsyncEngine(int)} is running and the endpoint may take one more request right away. The request is
+   * otherwise sent, like any other, once its response is asked for.
+   * The response is received in full before it is handed over. A failed response is sent again by
+   * {@link PendingResponse#get()}, within the same retry budget as the other requests of the client.
+   *
+   * @param request the Rest API request
+   * @return the pending response, which must either be read and closed or cancelled
+   */
+  protected PendingResponse executeGetAsync(RestAPIRequest request) {
+    CloseableHttpAsyncClient client = asyncClient;
+    if (client == null || pausedUntilMillis > System.currentTimeMillis()) {
+      return new PendingResponse(request);
+    }
+
+    // A request that cannot be sent now is deferred rather than waited for, as the permits of the requests that are
+    // already in flight are only released once their responses are read by the caller
+    String endpoint = getEndpoint(request.getUrl());
+    AdaptiveConcurrencyLimiter.Permit permit = AdaptiveConcurrencyLimiter.forEndpoint(endpoint,
+                                                                                      maxConnectionsPerRoute)
+      .tryAcquire();
+    if (permit == null) {
+      return new PendingResponse(request);
+    }
+
+    // The circuit is checked once the permit is held, as the request may be the probe of a half open circuit and
+    // must then be sent, and before the rate is spent, as a deferred request is sent again later
+    CircuitBreaker circuitBreaker = CircuitBreaker.forEndpoint(endpoint);
+    if (circuitBreaker.tryAcquire() > 0) {
+      permit.close();
+      return new PendingResponse(request);
     }
 
-    return apiResponse;
+    RateLimiter rateLimiter = this.rateLimiter;
+    if (rateLimiter != null) {
+      rateLimiter.acquire();
+    }
+
+    HttpGet httpGet = new HttpGet(request.getUrl());
+    request.getHeaders().entrySet().forEach(e -> httpGet.addHeader(e.getKey(), e.getValue()));
+    try {
+      return new PendingResponse(request, circuitBreaker, permit, httpGet, client.execute(httpGet, null));
+    } catch (RuntimeException e) {
+      circuitBreaker.onAbandoned();
+      permit.close();
+      throw e;
+    }
   }
 
   /**
-   * Generates access token and returns the same.
+   * Returns an access token for the requests of this client. Called again to replace a token that the server
+   * rejected.
+   *
+   * @return The access token
+   * @throws OAuthSystemException
+   * @throws OAuthProblemException
+   */
+  public abstract String getAccessToken() throws OAuthSystemException, OAuthProblemException;
+
+  /**
+   * Returns an access token. Tokens are cached for the whole JVM and reused until shortly before they expire.
    *
    * @param restApiEndpoint The rest API endpoint for ServiceNow
    * @param clientId The Client Id for ServiceNow
@@ -69,18 +227,376 @@ public abstract class RestAPIClient {
    */
   protected String generateAccessToken(String restApiEndpoint, String clientId, String clientSecret, String user,
                                        String password) throws OAuthSystemException, OAuthProblemException {
-    String token = "NO-VALUE";
-
-    OAuthClient client = new OAuthClient(new URLConnectionClient());
-    OAuthClientRequest request = OAuthClientRequest.tokenLocation(restApiEndpoint)
-      .setGrantType(GrantType.PASSWORD)
-      .setClientId(clientId)
-      .setClientSecret(clientSecret)
-      .setUsername(user)
-      .setPassword(password)
-      .buildBodyMessage();
-
-    token = client.accessToken(request, OAuth.HttpMethod.POST, OAuthJSONAccessTokenResponse.class).getAccessToken();
-    return token;
+    return OAuthTokenCache.getAccessToken(restApiEndpoint, clientId, clientSecret, user, password);
+  }
+
+  /**
+   * Releases this client's hold on the shared connection pool.
+   */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      sharedHttpClient.release();
+      closeAsyncEngine();
+    }
+  }
+
+  private synchronized void closeAsyncEngine() {
+    if (asyncClient == null) {
+      return;
+    }
+
+    try {
+      asyncClient.close();
+    } catch (IOException e) {
+      LOG.warn("Error while closing the asynchronous HTTP client", e);
+    }
+    asyncClient = null;
+  }
+
+  private RestAPIStreamingResponse execute(RestAPIRequest request, boolean hedge) throws IOException {
+    String endpoint = getEndpoint(request.getUrl());
+    CircuitBreaker circuitBreaker = CircuitBreaker.forEndpoint(endpoint);
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.forEndpoint(endpoint, maxConnectionsPerRoute);
+    HedgedRequestExecutor hedger = hedge ? HedgedRequestExecutor.forEndpoint(endpoint) : null;
+    String authorization = request.getHeaders().get(HEADER_AUTHORIZATION);
+    boolean reauthenticated = false;
+    int attempt = 0;
+
+    while (true) {
+      pauseForRateLimit();
+      RateLimiter rateLimiter = this.rateLimiter;
+      if (rateLimiter != null) {
+        rateLimiter.acquire();
+      }
+
+      HttpGet httpGet = new HttpGet(request.getUrl());
+      request.getHeaders().entrySet().forEach(e -> httpGet.addHeader(e.getKey(), e.getValue()));
+      if (authorization != null) {
+        httpGet.setHeader(HEADER_AUTHORIZATION, authorization);
+      }
+
+      acquire(circuitBreaker, endpoint);
+      AdaptiveConcurrencyLimiter.Permit permit;
+      try {
+        permit = acquire(limiter);
+      } catch (InterruptedIOException e) {
+        circuitBreaker.onAbandoned();
+        throw e;
+      }
+      CloseableHttpResponse httpResponse;
+      try {
+        httpResponse = hedger == null ? sharedHttpClient.getHttpClient().execute(httpGet)
+          : hedger.execute(sharedHttpClient.getHttpClient(), httpGet, circuitBreaker, () -> tryAcquireHedge(limiter));
+      } catch (IOException e) {
+        if (!RestAPIRetryPolicy.isRetryable(e)) {
+          circuitBreaker.onAbandoned();
+          permit.close();
+          throw e;
+        }
+        circuitBreaker.onFailure();
+        permit.onFailure();
+        permit.close();
+        backOff(request, e.toString(), retryPolicy.getDelayMillis(attempt++, null, null, System.currentTimeMillis()),
+                e);
+        continue;
+      } catch (RuntimeException e) {
+        circuitBreaker.onAbandoned();
+        permit.close();
+        throw e;
+      }
+
+      int httpStatus = httpResponse.getStatusLine().getStatusCode();
+      onResponse(circuitBreaker, permit, httpStatus);
+      long nowMillis = System.currentTimeMillis();
+      observeRateLimit(httpResponse, nowMillis);
+
+      // The token may have been revoked before its advertised expiry, a new one is asked for once
+      if (httpStatus == HttpStatus.SC_UNAUTHORIZED && authorization != null && !reauthenticated) {
+        discard(httpResponse, permit);
+        authorization = renewAuthorization(authorization);
+        reauthenticated = true;
+        continue;
+      }
+
+      if (!RestAPIRetryPolicy.isRetryable(httpStatus)) {
+        return new RestAPIStreamingResponse(httpResponse, permit, request.getResponseHeaders());
+      }
+
+      long delayMillis = retryPolicy.getDelayMillis(
+        attempt++, getHeader(httpResponse, RestAPIRetryPolicy.HEADER_RETRY_AFTER),
+        getHeader(httpResponse, RestAPIRetryPolicy.HEADER_RATE_LIMIT_RESET), nowMillis);
+      discard(httpResponse, permit);
+      backOff(request, "HTTP status " + httpStatus, delayMillis, null);
+    }
+  }
+
+  private static void acquire(CircuitBreaker circuitBreaker, String endpoint) throws IOException {
+    try {
+      if (!circuitBreaker.acquire(MAX_CIRCUIT_WAIT_MILLIS)) {
+        throw new IOException(String.format("%s is still failing after waiting for %d minutes", endpoint,
+                                            TimeUnit.MILLISECONDS.toMinutes(MAX_CIRCUIT_WAIT_MILLIS)));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the circuit of " + endpoint + " to close");
+    }
+  }
+
+  /**
+   * Reports the status a response started with to the circuit breaker and the concurrency limiter of its endpoint.
+   */
+  private static void onResponse(CircuitBreaker circuitBreaker, AdaptiveConcurrencyLimiter.Permit permit,
+                                 int httpStatus) {
+    permit.onResponse(httpStatus);
+    if (httpStatus >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+      circuitBreaker.onFailure();
+    } else {
+      circuitBreaker.onSuccess();
+    }
+  }
+
+  private static AdaptiveConcurrencyLimiter.Permit acquire(AdaptiveConcurrencyLimiter limiter)
+    throws InterruptedIOException {
+    try {
+      return limiter.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to send a request");
+    }
+  }
+
+  /**
+   * Returns the permit of a hedged copy of a request if the limits of the client and of the endpoint let it through
+   * right away, null otherwise.
+   */
+  @Nullable
+  private AdaptiveConcurrencyLimiter.Permit tryAcquireHedge(AdaptiveConcurrencyLimiter limiter) {
+    if (pausedUntilMillis > System.currentTimeMillis()) {
+      return null;
+    }
+
+    AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+    RateLimiter rateLimiter = this.rateLimiter;
+    if (permit != null && rateLimiter != null && !rateLimiter.tryAcquire(0, TimeUnit.MICROSECONDS)) {
+      permit.close();
+      return null;
+    }
+    return permit;
+  }
+
+  private void backOff(RestAPIRequest request, String failure, long delayMillis, @Nullable IOException cause)
+    throws IOException {
+    if (retriesLeft.getAndDecrement() <= 0) {
+      throw new IOException(String.format("Request to %s failed with %s and the %d retries allowed are spent",
+                                          request.getUrl(), failure, MAX_RETRIES), cause);
+    }
+
+    LOG.warn("Request to {} failed with {}, retrying in {} ms", request.getUrl(), failure, delayMillis);
+    sleep(delayMillis);
+  }
+
+  private void observeRateLimit(HttpResponse httpResponse, long nowMillis) {
+    Long pause = RestAPIRetryPolicy.getExhaustedRateLimitDelayMillis(
+      getHeader(httpResponse, RestAPIRetryPolicy.HEADER_RATE_LIMIT_REMAINING),
+      getHeader(httpResponse, RestAPIRetryPolicy.HEADER_RATE_LIMIT_RESET), nowMillis);
+    if (pause != null) {
+      pausedUntilMillis = Math.max(pausedUntilMillis, nowMillis + pause);
+    }
+  }
+
+  private void pauseForRateLimit() throws IOException {
+    long delayMillis = pausedUntilMillis - System.currentTimeMillis();
+    if (delayMillis > 0) {
+      LOG.info("Rate limit of the server reached, pausing for {} ms", delayMillis);
+      sleep(delayMillis);
+    }
+  }
+
+  private String renewAuthorization(String authorization) throws IOException {
+    if (authorization.startsWith(BEARER_PREFIX)) {
+      OAuthTokenCache.invalidate(authorization.substring(BEARER_PREFIX.length()));
+    }
+
+    try {
+      return BEARER_PREFIX + getAccessToken();
+    } catch (OAuthSystemException | OAuthProblemException e) {
+      throw new IOException("Unable to renew the rejected access token", e);
+    }
+  }
+
+  private static void sleep(long millis) throws InterruptedIOException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry a request");
+    }
+  }
+
+  private static String getEndpoint(String url) {
+    URI uri = URI.create(url);
+    return uri.getScheme() + "://" + uri.getAuthority();
+  }
+
+  @Nullable
+  private static String getHeader(HttpResponse httpResponse, String name) {
+    return httpResponse.containsHeader(name) ? httpResponse.getFirstHeader(name).getValue() : null;
+  }
+
+  /**
+   * Reads what is left of a response that is not used, so that its connection goes back to the pool.
+   */
+  private static void discard(CloseableHttpResponse httpResponse, AdaptiveConcurrencyLimiter.Permit permit)
+    throws IOException {
+    try {
+      EntityUtils.consumeQuietly(httpResponse.getEntity());
+      httpResponse.close();
+    } finally {
+      permit.close();
+    }
+  }
+
+  /**
+   * The response to a request sent by {@link #executeGetAsync(RestAPIRequest)}, or to a request that is deferred
+   * until its response is asked for.
+   */
+  public final class PendingResponse {
+    private final RestAPIRequest request;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter.Permit permit;
+    private final HttpGet httpGet;
+    private final Future<HttpResponse> future;
+    // Set once the outcome of the request is reported, or the request abandoned
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private PendingResponse(RestAPIRequest request) {
+      this(request, null, null, null, null);
+    }
+
+    private PendingResponse(RestAPIRequest request, @Nullable CircuitBreaker circuitBreaker,
+                            @Nullable AdaptiveConcurrencyLimiter.Permit permit, @Nullable HttpGet httpGet,
+                            @Nullable Future<HttpResponse> future) {
+      this.request = request;
+      this.circuitBreaker = circuitBreaker;
+      this.permit = permit;
+      this.httpGet = httpGet;
+      this.future = future;
+    }
+
+    /**
+     * Returns true if the request was sent without waiting for its response, false if it is only sent by
+     * {@link #get()}.
+     */
+    public boolean isSent() {
+      return future != null;
+    }
+
+    /**
+     * Waits for the response of the request, sending it again as long as it fails with a retryable error.
+     *
+     * @return the response, which must be closed
+     * @throws IOException if the request failed for good
+     */
+    public RestAPIStreamingResponse get() throws IOException {
+      if (future == null) {
+        return execute(request, false);
+      }
+
+      HttpResponse httpResponse;
+      try {
+        httpResponse = future.get();
+        if (!finished.compareAndSet(false, true)) {
+          throw new InterruptedIOException("Request to " + request.getUrl() + " was cancelled");
+        }
+      } catch (InterruptedException e) {
+        cancel();
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the response of " + request.getUrl());
+      } catch (ExecutionException e) {
+        if (!finished.compareAndSet(false, true)) {
+          throw new InterruptedIOException("Request to " + request.getUrl() + " was cancelled");
+        }
+        Throwable cause = e.getCause();
+        if (!(cause instanceof IOException) || !RestAPIRetryPolicy.isRetryable((IOException) cause)) {
+          circuitBreaker.onAbandoned();
+          permit.close();
+          throw cause instanceof IOException ? (IOException) cause
+            : new IOException("Request to " + request.getUrl() + " failed", cause);
+        }
+        circuitBreaker.onFailure();
+        permit.onFailure();
+        permit.close();
+        backOff(request, cause.toString(), retryPolicy.getDelayMillis(0, null, null, System.currentTimeMillis()),
+                (IOException) cause);
+        return execute(request, false);
+      } catch (CancellationException e) {
+        abandon();
+        throw new InterruptedIOException("Request to " + request.getUrl() + " was cancelled");
+      }
+
+      int httpStatus = httpResponse.getStatusLine().getStatusCode();
+      onResponse(circuitBreaker, permit, httpStatus);
+      long nowMillis = System.currentTimeMillis();
+      observeRateLimit(httpResponse, nowMillis);
+
+      if (httpStatus != HttpStatus.SC_UNAUTHORIZED && !RestAPIRetryPolicy.isRetryable(httpStatus)) {
+        return new RestAPIStreamingResponse(httpResponse, () -> EntityUtils.consume(httpResponse.getEntity()),
+                                            httpGet::abort, permit, request.getResponseHeaders());
+      }
+
+      // Failed responses are sent again on the blocking path, which renews a rejected token and backs off
+      EntityUtils.consumeQuietly(httpResponse.getEntity());
+      permit.close();
+      if (httpStatus != HttpStatus.SC_UNAUTHORIZED) {
+        backOff(request, "HTTP status " + httpStatus, retryPolicy.getDelayMillis(
+          0, getHeader(httpResponse, RestAPIRetryPolicy.HEADER_RETRY_AFTER),
+          getHeader(httpResponse, RestAPIRetryPolicy.HEADER_RATE_LIMIT_RESET), nowMillis), null);
+      }
+      return execute(request, false);
+    }
+
+    /**
+     * Abandons the request, releasing its connection. Does nothing if the request was not sent.
+     */
+    public void cancel() {
+      if (future == null) {
+        return;
+      }
+
+      future.cancel(true);
+      httpGet.abort();
+      if (!finished.compareAndSet(false, true)) {
+        return;
+      }
+      // A request whose outcome is unknown must not keep the circuit half open if it was its probe
+      boolean reported = false;
+      if (future.isDone() && !future.isCancelled()) {
+        try {
+          HttpResponse httpResponse = future.get();
+          onResponse(circuitBreaker, permit, httpResponse.getStatusLine().getStatusCode());
+          reported = true;
+          EntityUtils.consumeQuietly(httpResponse.getEntity());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          // The request failed anyway
+        }
+      }
+      if (!reported) {
+        circuitBreaker.onAbandoned();
+      }
+      permit.close();
+    }
+
+    /**
+     * Releases the permit of a request whose outcome is unknown, and the circuit if it was its probe.
+     */
+    private void abandon() {
+      if (finished.compareAndSet(false, true)) {
+        circuitBreaker.onAbandoned();
+        permit.close();
+      }
+    }
   }
 }
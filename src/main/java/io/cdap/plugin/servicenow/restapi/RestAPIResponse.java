@@ -68,15 +68,8 @@ public class RestAPIResponse {
    * @return An instance of RestAPIResponse object.
    */
   public static RestAPIResponse parse(HttpResponse httpResponse, String... headerNames) {
-    List<String> headerNameList = headerNames == null ? Collections.emptyList() : Arrays.asList(headerNames);
     int httpStatus = httpResponse.getStatusLine().getStatusCode();
-    Map<String, String> headers = new HashMap<>();
-
-    if (!headerNameList.isEmpty()) {
-      headers.putAll(Arrays.stream(httpResponse.getAllHeaders())
-        .filter(o -> headerNameList.contains(o.getName()))
-        .collect(Collectors.toMap(Header::getName, Header::getValue)));
-    }
+    Map<String, String> headers = extractHeaders(httpResponse, headerNames);
 
     String responseBody = "";
     try {
@@ -93,6 +86,19 @@ public class RestAPIResponse {
     return parse(httpResponse, new String[0]);
   }
 
+  static Map<String, String> extractHeaders(HttpResponse httpResponse, String... headerNames) {
+    List<String> headerNameList = headerNames == null ? Collections.emptyList() : Arrays.asList(headerNames);
+    Map<String, String> headers = new HashMap<>();
+
+    if (!headerNameList.isEmpty()) {
+      headers.putAll(Arrays.stream(httpResponse.getAllHeaders())
+        .filter(o -> headerNameList.contains(o.getName()))
+        .collect(Collectors.toMap(Header::getName, Header::getValue)));
+    }
+
+    return headers;
+  }
+
   public int getHttpStatus() {
     return httpStatus;
   }
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.servicenow.restapi;
+
+import com.google.common.base.Strings;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+
+/**
+ * Decides which failed requests are sent again and how long to wait before doing so.
+ * Rate limited (429) and server side (5xx) responses are retried, as are requests that failed on the network. The wait
+ * is the one asked for by the server through the `Retry-After` or `X-RateLimit-Reset` headers when present, an
+ * exponential backoff with jitter otherwise, so that the clients throttled together do not come back together.
+ */
+final class RestAPIRetryPolicy {
+  static final String HEADER_RETRY_AFTER = "Retry-After";
+  static final String HEADER_RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
+  static final String HEADER_RATE_LIMIT_RESET = "X-RateLimit-Reset";
+  static final int HTTP_STATUS_TOO_MANY_REQUESTS = 429;
+
+  private static final long BASE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  // A server asking for a longer pause is still retried, only sooner than it asked for
+  private static final long MAX_SERVER_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private final Random random;
+
+  /**
+   * Constructor for RestAPIRetryPolicy object.
+   *
+   * @param random The source of the jitter added to every wait
+   */
+  RestAPIRetryPolicy(Random random) {
+    this.random = random;
+  }
+
+  /**
+   * Returns true if a response with the given status may succeed when the request is sent again.
+   */
+  static boolean isRetryable(int httpStatus) {
+    return httpStatus == HTTP_STATUS_TOO_MANY_REQUESTS
+      || (httpStatus >= HttpStatus.SC_INTERNAL_SERVER_ERROR && httpStatus != HttpStatus.SC_NOT_IMPLEMENTED);
+  }
+
+  /**
+   * Returns true if a request that failed with the given error may succeed when it is sent again. Connection resets
+   * and timeouts are transient, an unknown host or a failed TLS handshake is not.
+   */
+  static boolean isRetryable(IOException e) {
+    return !(e instanceof UnknownHostException || e instanceof SSLException);
+  }
+
+  /**
+   * Returns the time to wait before sending a request again.
+   *
+   * @param attempt The number of times the request was already retried
+   * @param retryAfter The value of the `Retry-After` header of the failed response, if any
+   * @param rateLimitReset The value of the `X-RateLimit-Reset` header of the failed response, if any
+   * @param nowMillis The current time, in milliseconds since the epoch
+   * @return The wait, in milliseconds
+   */
+  long getDelayMillis(int attempt, @Nullable String retryAfter, @Nullable String rateLimitReset, long nowMillis) {
+    Long serverDelay = getServerDelayMillis(retryAfter, rateLimitReset, nowMillis);
+    if (serverDelay != null) {
+      // A little jitter still keeps the clients waiting for the same instant from all coming back at it
+      return serverDelay + (long) (random.nextDouble() * BASE_DELAY_MILLIS);
+    }
+
+    long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_DELAY_MILLIS << Math.min(attempt, 16));
+    return ceiling / 2 + (long) (random.nextDouble() * (ceiling / 2));
+  }
+
+  /**
+   * Returns the time the server asked to wait for, null if it did not ask for any.
+   *
+   * @param retryAfter The value of the `Retry-After` header, in seconds or as an HTTP date
+   * @param rateLimitReset The value of the `X-RateLimit-Reset` header, in seconds since the epoch
+   * @param nowMillis The current time, in milliseconds since the epoch
+   * @return The wait, in milliseconds
+   */
+  @Nullable
+  static Long getServerDelayMillis(@Nullable String retryAfter, @Nullable String rateLimitReset, long nowMillis) {
+    Long delay = parseRetryAfter(retryAfter, nowMillis);
+    if (delay == null) {
+      Long resetSeconds = parseLong(rateLimitReset);
+      delay = resetSeconds == null ? null : TimeUnit.SECONDS.toMillis(resetSeconds) - nowMillis;
+    }
+    return delay == null ? null : Math.max(0, Math.min(MAX_SERVER_DELAY_MILLIS, delay));
+  }
+
+  /**
+   * Returns the time to wait before the next request when the server reported that no requests are left in the
+   * current rate limit window, null when some are left.
+   *
+   * @param rateLimitRemaining The value of the `X-RateLimit-Remaining` header
+   * @param rateLimitReset The value of the `X-RateLimit-Reset` header, in seconds since the epoch
+   * @param nowMillis The current time, in milliseconds since the epoch
+   * @return The wait, in milliseconds
+   */
+  @Nullable
+  static Long getExhaustedRateLimitDelayMillis(@Nullable String rateLimitRemaining, @Nullable String rateLimitReset,
+                                               long nowMillis) {
+    Long remaining = parseLong(rateLimitRemaining);
+    if (remaining == null || remaining > 0) {
+      return null;
+    }
+    return getServerDelayMillis(null, rateLimitReset, nowMillis);
+  }
+
+  @Nullable
+  private static Long parseRetryAfter(@Nullable String retryAfter, long nowMillis) {
+    if (Strings.isNullOrEmpty(retryAfter)) {
+      return null;
+    }
+
+    Long seconds = parseLong(retryAfter);
+    if (seconds != null) {
+      return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    Date date = DateUtils.parseDate(retryAfter.trim());
+    return date == null ? null : date.getTime() - nowMillis;
+  }
+
+  @Nullable
+  private static Long parseLong(@Nullable String value) {
+    if (Strings.isNullOrEmpty(value)) {
+      return null;
+    }
+
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
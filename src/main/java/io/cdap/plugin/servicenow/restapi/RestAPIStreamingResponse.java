@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.restapi;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An API response whose body has not been read yet. The body is consumed directly from the connection, so the
+ * response must be closed to return the connection to the pool.
+ * The response is read and closed by a single thread, another thread may only {@link #abort()} it.
+ */
+public class RestAPIStreamingResponse implements Closeable {
+  private final HttpResponse httpResponse;
+  private final Closeable connection;
+  private final Closeable abort;
+  private final AdaptiveConcurrencyLimiter.Permit permit;
+  private final int httpStatus;
+  private final Map<String, String> headers;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  RestAPIStreamingResponse(CloseableHttpResponse httpResponse, AdaptiveConcurrencyLimiter.Permit permit,
+                           String... headerNames) {
+    // Closing a response that is still being read shuts its connection down
+    this(httpResponse, httpResponse, httpResponse, permit, headerNames);
+  }
+
+  /**
+   * Constructor for a response whose connection is released separately, such as one received asynchronously.
+   *
+   * @param httpResponse The response
+   * @param connection Releases the connection of the response
+   * @param abort Aborts the request, unblocking a thread that reads the response
+   * @param permit The concurrency permit held by the request
+   * @param headerNames The names of the headers to be extracted
+   */
+  RestAPIStreamingResponse(HttpResponse httpResponse, Closeable connection, Closeable abort,
+                           AdaptiveConcurrencyLimiter.Permit permit, String... headerNames) {
+    this.httpResponse = httpResponse;
+    this.connection = connection;
+    this.abort = abort;
+    this.permit = permit;
+    this.httpStatus = httpResponse.getStatusLine().getStatusCode();
+    this.headers = RestAPIResponse.extractHeaders(httpResponse, headerNames);
+  }
+
+  public int getHttpStatus() {
+    return httpStatus;
+  }
+
+  public boolean isSuccess() {
+    return httpStatus == HttpStatus.SC_OK;
+  }
+
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Returns the stream of the response body.
+   *
+   * @return The response body as it is received from the server
+   * @throws IOException if the content stream could not be created
+   */
+  public InputStream getContent() throws IOException {
+    return httpResponse.getEntity().getContent();
+  }
+
+  /**
+   * Reads the whole response body into a String. Meant for error responses, which are small.
+   *
+   * @return The response body
+   * @throws IOException if the response body could not be read
+   */
+  public String getResponseBody() throws IOException {
+    return EntityUtils.toString(httpResponse.getEntity());
+  }
+
+  HttpResponse getHttpResponse() {
+    return httpResponse;
+  }
+
+  /**
+   * Aborts the request from another thread, so that the thread reading the response stops waiting on the socket.
+   * The response must still be closed by the thread that reads it.
+   *
+   * @throws IOException if the request could not be aborted
+   */
+  public void abort() throws IOException {
+    abort.close();
+  }
+
+  /**
+   * Closes the response, ending the request as far as the concurrency limit of the endpoint is concerned. Does
+   * nothing if the response is already closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      connection.close();
+    } finally {
+      permit.close();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.restapi;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A JVM-wide HTTP client backed by a pool of keep-alive connections.
+ * The client is reference counted: every {@link RestAPIClient} acquires it when created and releases it when closed.
+ * Once the last user has released it the pool is kept for a grace period, so that the next record reader in the
+ * same JVM reuses its keep-alive connections, and is shut down only if nobody acquires it in the meantime.
+ */
+final class SharedHttpClient {
+  private static final Logger LOG = LoggerFactory.getLogger(SharedHttpClient.class);
+  private static final int MAX_TOTAL_CONNECTIONS = 200;
+  private static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 30;
+  private static final long EVICTION_INTERVAL_SECONDS = 10;
+  private static final long CLOSE_GRACE_SECONDS = 60;
+
+  private static SharedHttpClient instance;
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CloseableHttpClient httpClient;
+  private final ScheduledExecutorService evictor;
+  private int references;
+  private int releases;
+
+  private SharedHttpClient(int maxConnectionsPerRoute) {
+    this.connectionManager = new PoolingHttpClientConnectionManager();
+    this.connectionManager.setMaxTotal(Math.max(MAX_TOTAL_CONNECTIONS, maxConnectionsPerRoute));
+    this.connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    this.httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager).build();
+    this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "servicenow-http-idle-evictor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.evictor.scheduleWithFixedDelay(this::evictIdleConnections, EVICTION_INTERVAL_SECONDS,
+      EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Returns the shared client, creating it on first use. Every call must be paired with {@link #release()}.
+   *
+   * @param maxConnectionsPerRoute The maximum number of pooled connections per route
+   * @return The shared instance of SharedHttpClient
+   */
+  static synchronized SharedHttpClient acquire(int maxConnectionsPerRoute) {
+    if (instance == null) {
+      instance = new SharedHttpClient(maxConnectionsPerRoute);
+    } else if (instance.connectionManager.getDefaultMaxPerRoute() < maxConnectionsPerRoute) {
+      instance.connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    }
+    instance.references++;
+    return instance;
+  }
+
+  /**
+   * Releases the shared client. If nobody else is using it, the connection pool is closed after a grace period
+   * unless the client is acquired again before then.
+   */
+  void release() {
+    int release;
+    synchronized (SharedHttpClient.class) {
+      if (--references > 0) {
+        return;
+      }
+      release = ++releases;
+    }
+    evictor.schedule(() -> closeIfUnused(release), CLOSE_GRACE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private void closeIfUnused(int release) {
+    synchronized (SharedHttpClient.class) {
+      if (references > 0 || releases != release) {
+        return;
+      }
+      if (instance == this) {
+        instance = null;
+      }
+    }
+
+    evictor.shutdown();
+    try {
+      httpClient.close();
+    } catch (IOException e) {
+      LOG.warn("Error while closing the shared HTTP client", e);
+    }
+  }
+
+  CloseableHttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  private void evictIdleConnections() {
+    connectionManager.closeExpiredConnections();
+    connectionManager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+}
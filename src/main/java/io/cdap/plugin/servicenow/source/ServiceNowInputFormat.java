@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.servicenow.source;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.servicenow.source.apiclient.ServiceNowTableAPIClientImpl;
@@ -24,7 +25,9 @@ import io.cdap.plugin.servicenow.source.util.SchemaBuilder;
 import io.cdap.plugin.servicenow.source.util.ServiceNowColumn;
 import io.cdap.plugin.servicenow.source.util.ServiceNowConstants;
 import io.cdap.plugin.servicenow.source.util.ServiceNowTableInfo;
+import io.cdap.plugin.servicenow.source.util.SourcePaginationMode;
 import io.cdap.plugin.servicenow.source.util.SourceQueryMode;
+import io.cdap.plugin.servicenow.source.util.Util;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputFormat;
@@ -36,15 +39,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * ServiceNow input format.
  */
 public class ServiceNowInputFormat extends InputFormat<NullWritable, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(ServiceNowInputFormat.class);
+  private static final int MAX_METADATA_THREADS = 8;
 
   /**
    * Updates the jobConfig with the ServiceNow table information, which will then be read in getSplit() function.
@@ -52,51 +65,140 @@ public class ServiceNowInputFormat extends InputFormat<NullWritable, StructuredR
    * @param jobConfig the job configuration
    * @param mode the query mode
    * @param conf the database conf
+   * @param watermarks the time up to which the records of each table were already read, by table name
    * @return Collection of ServiceNowTableInfo containing table and schema.
+   * @throws IOException if a request to ServiceNow was still failing once its retries were spent
    */
   public static List<ServiceNowTableInfo> setInput(Configuration jobConfig, SourceQueryMode mode,
-                                                   ServiceNowSourceConfig conf) {
+                                                   ServiceNowSourceConfig conf, Map<String, String> watermarks)
+    throws IOException {
     ServiceNowJobConfiguration jobConf = new ServiceNowJobConfiguration(jobConfig);
     jobConf.setPluginConfiguration(conf);
 
+    // Leave the records updated from now on to the next run. The tables can still change while the run is in
+    // progress, which shifts the pages requested by position but not those resuming after a sys_id
+    String snapshotTime = fetchSnapshotTime(mode, conf);
+    jobConf.setSnapshotTime(snapshotTime);
+    for (Map.Entry<String, String> watermark : watermarks.entrySet()) {
+      jobConf.setTableWatermark(watermark.getKey(), watermark.getValue());
+    }
+
     // Depending on conf value fetch the list of fields for each table and create schema object
     // return the schema object for each table as ServiceNowTableInfo
-    List<ServiceNowTableInfo> tableInfos = fetchTableInfo(mode, conf);
+    List<ServiceNowTableInfo> tableInfos = fetchTableInfo(mode, conf, snapshotTime, watermarks);
 
     jobConf.setTableInfos(tableInfos);
+    for (ServiceNowTableInfo tableInfo : tableInfos) {
+      jobConf.setTableSchema(tableInfo.getTableName(), tableInfo.getSchema());
+    }
 
     return tableInfos;
   }
 
-  private static List<ServiceNowTableInfo> fetchTableInfo(SourceQueryMode mode, ServiceNowSourceConfig conf) {
+  /**
+   * Returns the time of the ServiceNow instance, less a second so that no record can still be updated within the
+   * returned second. The clock of the instance is preferred to the local one as the two may be skewed.
+   */
+  private static String fetchSnapshotTime(SourceQueryMode mode, ServiceNowSourceConfig conf) throws IOException {
+    String tableName = mode == SourceQueryMode.TABLE ? conf.getTableName() :
+      conf.getApplicationName().getTableNames().get(0);
+
+    Instant instanceTime;
+    try (ServiceNowTableAPIClientImpl restApi = new ServiceNowTableAPIClientImpl(conf)) {
+      instanceTime = restApi.fetchInstanceTime(tableName);
+    }
+
+    if (instanceTime == null) {
+      LOG.warn("ServiceNow instance did not report its time, using the local clock to bound the run");
+      instanceTime = Instant.now();
+    }
+
+    String snapshotTime = Util.formatDateTime(instanceTime.minusSeconds(1));
+    LOG.info("Reading records updated on or before {} GMT", snapshotTime);
+    return snapshotTime;
+  }
+
+  private static List<ServiceNowTableInfo> fetchTableInfo(SourceQueryMode mode, ServiceNowSourceConfig conf,
+                                                          String snapshotTime, Map<String, String> watermarks)
+    throws IOException {
     // When mode = Table, fetch details from the table name provided in plugin config
     if (mode == SourceQueryMode.TABLE) {
-      ServiceNowTableInfo tableInfo = getTableMetaData(conf.getTableName(), conf);
+      ServiceNowTableInfo tableInfo = getTableMetaData(conf.getTableName(), conf, snapshotTime,
+                                                       watermarks.get(conf.getTableName()));
       return (tableInfo == null) ? Collections.emptyList() : Collections.singletonList(tableInfo);
     }
 
     // When mode = Reporting, get the list of tables for application name provided in plugin config
-    // and then fetch details from each of the tables.
-    List<ServiceNowTableInfo> tableInfos = new ArrayList<>();
-
+    // and then fetch details from all the tables at once, keeping the order of the application's tables.
     List<String> tableNames = conf.getApplicationName().getTableNames();
-    for (String tableName : tableNames) {
-      ServiceNowTableInfo tableInfo = getTableMetaData(tableName, conf);
-      if (tableInfo == null) {
-        continue;
+    int threads = Math.max(1, Math.min(tableNames.size(), Math.min(MAX_METADATA_THREADS,
+                                                                  conf.getMaxConnectionsPerRoute())));
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("servicenow-metadata-%d")
+      .setDaemon(true)
+      .build());
+
+    try {
+      List<Future<ServiceNowTableInfo>> futures = new ArrayList<>();
+      for (String tableName : tableNames) {
+        futures.add(executor.submit(() -> getTableMetaData(tableName, conf, snapshotTime,
+                                                           watermarks.get(tableName))));
       }
-      tableInfos.add(tableInfo);
-    }
 
-    return tableInfos;
+      List<ServiceNowTableInfo> tableInfos = new ArrayList<>();
+      for (Future<ServiceNowTableInfo> future : futures) {
+        ServiceNowTableInfo tableInfo = future.get();
+        if (tableInfo == null) {
+          continue;
+        }
+        tableInfos.add(tableInfo);
+      }
+
+      return tableInfos;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw cause instanceof RuntimeException ? (RuntimeException) cause :
+        new IllegalStateException("Unable to fetch the table metadata", cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while fetching the table metadata", e);
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
-  private static ServiceNowTableInfo getTableMetaData(String tableName, ServiceNowSourceConfig conf) {
+  private static ServiceNowTableInfo getTableMetaData(String tableName, ServiceNowSourceConfig conf,
+                                                      String snapshotTime, @Nullable String watermark)
+    throws IOException {
     // Call API to fetch first record from the table
-    ServiceNowTableAPIClientImpl restApi = new ServiceNowTableAPIClientImpl(conf);
+    ServiceNowTableDataResponse response;
+    List<String> splitBoundaries = Collections.emptyList();
+    List<Integer> splitRecordCounts = Collections.emptyList();
+    long startNanos = System.nanoTime();
+    long schemaNanos;
+    try (ServiceNowTableAPIClientImpl restApi = new ServiceNowTableAPIClientImpl(conf, snapshotTime, watermark)) {
+      response = restApi.fetchTableSchema(tableName, conf.getStartDate(), conf.getEndDate(), true);
+      schemaNanos = System.nanoTime() - startNanos;
+      if (response != null && conf.getPaginationMode() == SourcePaginationMode.KEYSET) {
+        splitBoundaries = fetchSplitBoundaries(restApi, tableName, response.getTotalRecordCount(), conf);
+      } else if (response != null && conf.getPaginationMode() == SourcePaginationMode.TIME_WINDOW) {
+        List<ServiceNowTimeWindowPlanner.Split> splits = planTimeWindows(restApi, tableName,
+                                                                         response.getTotalRecordCount(), conf,
+                                                                         snapshotTime);
+        splitBoundaries = splits.stream().skip(1).map(ServiceNowTimeWindowPlanner.Split::getLowerBound)
+          .collect(Collectors.toList());
+        splitRecordCounts = splits.stream().map(ServiceNowTimeWindowPlanner.Split::getRecordCount)
+          .collect(Collectors.toList());
+      }
+    }
+    long totalNanos = System.nanoTime() - startNanos;
+    LOG.info("Fetched metadata of table {} in {} ms: schema and count {} ms, split planning {} ms", tableName,
+             TimeUnit.NANOSECONDS.toMillis(totalNanos), TimeUnit.NANOSECONDS.toMillis(schemaNanos),
+             TimeUnit.NANOSECONDS.toMillis(totalNanos - schemaNanos));
 
-    ServiceNowTableDataResponse response = restApi.fetchTableSchema(tableName, conf.getStartDate(), conf.getEndDate(),
-      true);
     if (response == null) {
       return null;
     }
@@ -109,7 +211,58 @@ public class ServiceNowInputFormat extends InputFormat<NullWritable, StructuredR
     SchemaBuilder schemaBuilder = new SchemaBuilder();
     Schema schema = schemaBuilder.constructSchema(tableName, columns);
     LOG.debug("table {}, rows = {}", tableName, response.getTotalRecordCount());
-    return new ServiceNowTableInfo(tableName, schema, response.getTotalRecordCount());
+
+    return new ServiceNowTableInfo(tableName, schema, response.getTotalRecordCount(), splitBoundaries,
+                                   splitRecordCounts);
+  }
+
+  /**
+   * Looks up the sys_id at which each split of the table starts, so that the splits can be read in sys_id order
+   * without any offset. Only the first split has no lower boundary.
+   */
+  private static List<String> fetchSplitBoundaries(ServiceNowTableAPIClientImpl restApi, String tableName,
+                                                   int recordCount, ServiceNowSourceConfig conf)
+    throws IOException {
+    int splitSize = conf.getPagesPerSplit() * ServiceNowConstants.PAGE_SIZE;
+    List<String> splitBoundaries = new ArrayList<>();
+    for (int offset = splitSize; offset < recordCount; offset += splitSize) {
+      String sysId = restApi.fetchSysIdAt(tableName, conf.getStartDate(), conf.getEndDate(), offset);
+      if (sysId == null) {
+        // the table shrank since it was counted, the last split reads up to the end of the table anyway
+        break;
+      }
+      splitBoundaries.add(sysId);
+    }
+
+    return splitBoundaries;
+  }
+
+  /**
+   * Looks up the update time from which each split of the table starts, so that each split reads a window of time
+   * with shallow offsets, and the number of records of each split. Only the first split has no lower boundary.
+   */
+  private static List<ServiceNowTimeWindowPlanner.Split> planTimeWindows(ServiceNowTableAPIClientImpl restApi,
+                                                                         String tableName, int recordCount,
+                                                                         ServiceNowSourceConfig conf,
+                                                                         String snapshotTime)
+    throws IOException {
+    int splitSize = conf.getPagesPerSplit() * ServiceNowConstants.PAGE_SIZE;
+    if (recordCount <= splitSize) {
+      return Collections.singletonList(new ServiceNowTimeWindowPlanner.Split(null, recordCount));
+    }
+
+    String minUpdatedOn = restApi.fetchMinUpdatedOn(tableName, conf.getStartDate(), conf.getEndDate());
+    if (minUpdatedOn == null) {
+      throw new IllegalStateException(
+        String.format("Unable to find the earliest update time of the records of table '%s'", tableName));
+    }
+
+    ServiceNowTimeWindowPlanner planner = new ServiceNowTimeWindowPlanner(
+      (from, to) -> restApi.fetchRecordCount(tableName, conf.getStartDate(), conf.getEndDate(),
+                                             Util.formatDateTime(from), Util.formatDateTime(to)), splitSize);
+    // The snapshot time is inclusive, the planned range is not
+    return planner.plan(Util.parseDateTime(minUpdatedOn), Util.parseDateTime(snapshotTime).plusSeconds(1),
+                        recordCount);
   }
 
   @Override
@@ -117,14 +270,21 @@ public class ServiceNowInputFormat extends InputFormat<NullWritable, StructuredR
     ServiceNowJobConfiguration jobConfig = new ServiceNowJobConfiguration(jobContext.getConfiguration());
 
     List<ServiceNowTableInfo> tableInfos = jobConfig.getTableInfos();
+    ServiceNowSourceConfig pluginConf = jobConfig.getPluginConf();
+    int pagesPerSplit = pluginConf.getPagesPerSplit();
     List<InputSplit> resultSplits = new ArrayList<>();
 
     for (ServiceNowTableInfo tableInfo : tableInfos) {
       String tableName = tableInfo.getTableName();
+      if (pluginConf.getPaginationMode() != SourcePaginationMode.OFFSET) {
+        addBoundedSplits(resultSplits, tableInfo, pagesPerSplit);
+        continue;
+      }
+
       int totalRecords = tableInfo.getRecordCount();
       if (totalRecords <= ServiceNowConstants.PAGE_SIZE) {
         // add single split for table and continue
-        resultSplits.add(new ServiceNowInputSplit(tableName, 0));
+        resultSplits.add(new ServiceNowInputSplit(tableName, 0, 1));
         continue;
       }
 
@@ -134,15 +294,49 @@ public class ServiceNowInputFormat extends InputFormat<NullWritable, StructuredR
       }
       int offset = 0;
 
-      for (int page = 1; page <= pages; page++) {
-        resultSplits.add(new ServiceNowInputSplit(tableName, offset));
-        offset += ServiceNowConstants.PAGE_SIZE;
+      for (int page = 0; page < pages; page += pagesPerSplit) {
+        int pageCount = Math.min(pagesPerSplit, pages - page);
+        resultSplits.add(new ServiceNowInputSplit(tableName, offset, pageCount));
+        offset += pageCount * ServiceNowConstants.PAGE_SIZE;
       }
     }
 
+    Integer maxRequestsPerSecond = pluginConf.getMaxRequestsPerSecond();
+    if (maxRequestsPerSecond != null && !resultSplits.isEmpty()) {
+      // How many splits run at once is up to the cluster, each split gets the share it has when all of the splits
+      // expected to run together do, all of them when that is not known
+      Integer expectedParallelism = pluginConf.getExpectedParallelism();
+      int concurrentSplits = expectedParallelism == null ? resultSplits.size()
+        : Math.min(resultSplits.size(), expectedParallelism);
+      double requestsPerSecond = (double) maxRequestsPerSecond / concurrentSplits;
+      for (InputSplit split : resultSplits) {
+        ((ServiceNowInputSplit) split).setRequestsPerSecond(requestsPerSecond);
+      }
+      LOG.info("Limiting each of the {} splits, {} of which are expected to run at once, to {} requests per second",
+               resultSplits.size(), concurrentSplits, requestsPerSecond);
+    }
+
     return resultSplits;
   }
 
+  private static void addBoundedSplits(List<InputSplit> resultSplits, ServiceNowTableInfo tableInfo,
+                                       int pagesPerSplit) {
+    // Each split reads from its own boundary (inclusive) up to the next one (exclusive)
+    List<String> boundaries = tableInfo.getSplitBoundaries();
+    List<Integer> recordCounts = tableInfo.getSplitRecordCounts();
+    for (int i = 0; i <= boundaries.size(); i++) {
+      String lowerBound = i == 0 ? null : boundaries.get(i - 1);
+      String upperBound = i == boundaries.size() ? null : boundaries.get(i);
+      // Splits whose records were counted while planning are given their actual size, the others a full one
+      int pageCount = recordCounts.size() > i ? getPageCount(recordCounts.get(i)) : pagesPerSplit;
+      resultSplits.add(new ServiceNowInputSplit(tableInfo.getTableName(), lowerBound, upperBound, pageCount));
+    }
+  }
+
+  private static int getPageCount(int recordCount) {
+    return Math.max(1, (recordCount + ServiceNowConstants.PAGE_SIZE - 1) / ServiceNowConstants.PAGE_SIZE);
+  }
+
   @Override
   public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit inputSplit,
                                                                          TaskAttemptContext taskAttemptContext)
@@ -150,6 +344,6 @@ public class ServiceNowInputFormat extends InputFormat<NullWritable, StructuredR
     ServiceNowJobConfiguration jobConfig = new ServiceNowJobConfiguration(taskAttemptContext.getConfiguration());
     ServiceNowSourceConfig pluginConf = jobConfig.getPluginConf();
 
-    return new ServiceNowRecordReader(pluginConf);
+    return new ServiceNowRecordReader(pluginConf, jobConfig.getSnapshotTime());
   }
 }
@@ -16,27 +16,60 @@
 
 package io.cdap.plugin.servicenow.source;
 
+import com.google.common.base.Strings;
+import io.cdap.plugin.servicenow.source.util.ServiceNowConstants;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.InputSplit;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import javax.annotation.Nullable;
 
 /**
  * ServiceNow input split.
+ * The split either starts at an offset of the table, or covers a range of sys_id (Keyset pagination) or of
+ * sys_updated_on (Time Window pagination).
  */
 public class ServiceNowInputSplit extends InputSplit implements Writable {
   private String tableName;
   private int offset;
+  private int pageCount;
+  private String lowerBound;
+  private String upperBound;
+  private double requestsPerSecond;
 
   // used by mapreduce
   public ServiceNowInputSplit() {
   }
 
-  public ServiceNowInputSplit(String tableName, int offset) {
+  /**
+   * Constructor for ServiceNowInputSplit object.
+   *
+   * @param tableName The table name
+   * @param offset The offset of the first record of the split
+   * @param pageCount The number of pages read by the split
+   */
+  public ServiceNowInputSplit(String tableName, int offset, int pageCount) {
     this.tableName = tableName;
     this.offset = offset;
+    this.pageCount = pageCount;
+  }
+
+  /**
+   * Constructor for ServiceNowInputSplit object that covers a range of sys_id or sys_updated_on.
+   *
+   * @param tableName The table name
+   * @param lowerBound The value from which (inclusive) the split reads, null for the first split
+   * @param upperBound The value up to which (exclusive) the split reads, null for the last split
+   * @param pageCount The expected number of pages read by the split
+   */
+  public ServiceNowInputSplit(String tableName, @Nullable String lowerBound, @Nullable String upperBound,
+                              int pageCount) {
+    this.tableName = tableName;
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+    this.pageCount = pageCount;
   }
 
   public String getTableName() {
@@ -47,21 +80,54 @@ public class ServiceNowInputSplit extends InputSplit implements Writable {
     return offset;
   }
 
+  public int getPageCount() {
+    return pageCount;
+  }
+
+  @Nullable
+  public String getLowerBound() {
+    return lowerBound;
+  }
+
+  @Nullable
+  public String getUpperBound() {
+    return upperBound;
+  }
+
+  /**
+   * Returns the maximum number of requests per second the split may send, 0 if there is no limit.
+   */
+  public double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  public void setRequestsPerSecond(double requestsPerSecond) {
+    this.requestsPerSecond = requestsPerSecond;
+  }
+
   @Override
   public void write(DataOutput dataOutput) throws IOException {
     dataOutput.writeUTF(this.tableName);
     dataOutput.writeInt(this.offset);
+    dataOutput.writeInt(this.pageCount);
+    dataOutput.writeUTF(Strings.nullToEmpty(this.lowerBound));
+    dataOutput.writeUTF(Strings.nullToEmpty(this.upperBound));
+    dataOutput.writeDouble(this.requestsPerSecond);
   }
 
   @Override
   public void readFields(DataInput dataInput) throws IOException {
     this.tableName = dataInput.readUTF();
     this.offset = dataInput.readInt();
+    this.pageCount = dataInput.readInt();
+    this.lowerBound = Strings.emptyToNull(dataInput.readUTF());
+    this.upperBound = Strings.emptyToNull(dataInput.readUTF());
+    this.requestsPerSecond = dataInput.readDouble();
   }
 
   @Override
   public long getLength() throws IOException, InterruptedException {
-    return 0;
+    return (long) pageCount * ServiceNowConstants.PAGE_SIZE;
   }
 
   @Override
@@ -18,11 +18,14 @@ package io.cdap.plugin.servicenow.source;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.servicenow.source.util.ServiceNowTableInfo;
 import org.apache.hadoop.conf.Configuration;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * Allows to specify and access connection configuration properties of {@link Configuration}.
@@ -30,6 +33,9 @@ import java.util.List;
 public class ServiceNowJobConfiguration {
   private static final String PLUGIN_CONF_FIELD = "servicenow.plugin.conf";
   private static final String INFO_FIELD = "servicenow.table.info";
+  private static final String SNAPSHOT_TIME_FIELD = "servicenow.snapshot.time";
+  private static final String TABLE_SCHEMA_FIELD_PREFIX = "servicenow.table.schema.";
+  private static final String TABLE_WATERMARK_FIELD_PREFIX = "servicenow.table.watermark.";
 
   private static final Type PLUGIN_CONF_TYPE = new TypeToken<ServiceNowSourceConfig>() {
   }.getType();
@@ -64,6 +70,55 @@ public class ServiceNowJobConfiguration {
     set(INFO_FIELD, GSON.toJson(infoList));
   }
 
+  /**
+   * Returns the time captured when the run was planned, records updated after it are not read by the run.
+   */
+  public String getSnapshotTime() {
+    return getConf().get(SNAPSHOT_TIME_FIELD);
+  }
+
+  public void setSnapshotTime(String snapshotTime) {
+    set(SNAPSHOT_TIME_FIELD, snapshotTime);
+  }
+
+  /**
+   * Returns the schema planned for the table, so that every reader of the table builds the same records.
+   *
+   * @param tableName The table name
+   * @return The schema of the table
+   */
+  public Schema getTableSchema(String tableName) {
+    String schema = getConf().get(TABLE_SCHEMA_FIELD_PREFIX + tableName);
+    if (schema == null) {
+      throw new IllegalStateException(String.format("No schema was planned for table '%s'", tableName));
+    }
+
+    try {
+      return Schema.parseJson(schema);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Unable to parse the schema of table '%s'", tableName), e);
+    }
+  }
+
+  public void setTableSchema(String tableName, Schema schema) {
+    set(TABLE_SCHEMA_FIELD_PREFIX + tableName, schema.toString());
+  }
+
+  /**
+   * Returns the time up to which the records of the table were read by the last successful run.
+   *
+   * @param tableName The table name
+   * @return The GMT date time, null if all the records of the table are to be read
+   */
+  @Nullable
+  public String getTableWatermark(String tableName) {
+    return getConf().get(TABLE_WATERMARK_FIELD_PREFIX + tableName);
+  }
+
+  public void setTableWatermark(String tableName, String watermark) {
+    set(TABLE_WATERMARK_FIELD_PREFIX + tableName, watermark);
+  }
+
   private void set(String key, String value) {
     getConf().set(key, value);
   }
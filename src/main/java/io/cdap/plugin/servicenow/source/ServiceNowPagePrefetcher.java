@@ -0,0 +1,295 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source;
+
+import io.cdap.plugin.servicenow.source.apiclient.ServiceNowTableRecordFuture;
+import io.cdap.plugin.servicenow.source.apiclient.ServiceNowTableRecordStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.annotation.Nullable;
+
+/**
+ * Downloads and decodes the pages of a split on a background thread while the caller emits the rows that have
+ * already arrived.
+ * Decoded rows are handed over in batches through a bounded queue that holds at most `prefetchPages` pages, so the
+ * next page is requested while the current one is still being emitted without the whole split ending up in memory.
+ * Pages that do not depend on the rows of the previous page may also be requested several at a time, the background
+ * thread then keeps up to `pagesInFlight` requests outstanding and decodes their responses in page order.
+ *
+ * @param <T> The type of the decoded rows
+ */
+class ServiceNowPagePrefetcher<T> implements Closeable {
+  private static final int BATCH_SIZE = 500;
+
+  private final int pageCount;
+  private final int pageSize;
+  private final PageFetcher<T> fetcher;
+  private final PageRequester<T> requester;
+  private final int pagesInFlight;
+  private final BlockingQueue<Batch<T>> queue;
+  private final Thread thread;
+  private volatile ServiceNowTableRecordStream<T> currentPage;
+  private volatile boolean closed;
+  // Only used by the background thread
+  private T lastRow;
+  private Iterator<T> rows = Collections.emptyIterator();
+  private boolean finished;
+
+  /**
+   * Constructor for ServiceNowPagePrefetcher object.
+   *
+   * @param name The name of the background thread
+   * @param pageCount The maximum number of pages to read
+   * @param pageSize The number of rows in a full page, a shorter page ends the read
+   * @param prefetchPages The number of decoded pages that may be waiting to be emitted
+   * @param fetcher Opens the stream of a page
+   */
+  ServiceNowPagePrefetcher(String name, int pageCount, int pageSize, int prefetchPages, PageFetcher<T> fetcher) {
+    this(name, pageCount, pageSize, prefetchPages, fetcher, null, 1);
+  }
+
+  /**
+   * Constructor for a ServiceNowPagePrefetcher that keeps several page requests in flight.
+   *
+   * @param name The name of the background thread
+   * @param pageCount The maximum number of pages to read
+   * @param pageSize The number of rows in a full page, a shorter page ends the read
+   * @param prefetchPages The number of decoded pages that may be waiting to be emitted
+   * @param pagesInFlight The number of pages that may be requested ahead of the one being decoded, itself included
+   * @param requester Sends the request of a page
+   */
+  ServiceNowPagePrefetcher(String name, int pageCount, int pageSize, int prefetchPages, int pagesInFlight,
+                           PageRequester<T> requester) {
+    this(name, pageCount, pageSize, prefetchPages, null, requester, pagesInFlight);
+  }
+
+  private ServiceNowPagePrefetcher(String name, int pageCount, int pageSize, int prefetchPages,
+                                   @Nullable PageFetcher<T> fetcher, @Nullable PageRequester<T> requester,
+                                   int pagesInFlight) {
+    this.pageCount = pageCount;
+    this.pageSize = pageSize;
+    this.fetcher = fetcher;
+    this.requester = requester;
+    this.pagesInFlight = Math.max(1, pagesInFlight);
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, prefetchPages * pageSize / BATCH_SIZE));
+    this.thread = new Thread(this::fetchPages, name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Returns true if there is another row, waiting for the background thread if none has been downloaded yet.
+   *
+   * @throws IOException if a page could not be fetched or decoded
+   */
+  public boolean hasNext() throws IOException {
+    while (!rows.hasNext()) {
+      if (finished) {
+        return false;
+      }
+
+      Batch<T> batch;
+      try {
+        batch = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the next page");
+      }
+
+      if (batch.error != null) {
+        finished = true;
+        throw new IOException("Error fetching page", batch.error);
+      }
+      if (batch.rows == null) {
+        finished = true;
+        return false;
+      }
+      rows = batch.rows.iterator();
+    }
+    return true;
+  }
+
+  public T next() throws IOException {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return rows.next();
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    thread.interrupt();
+    // Aborting the page unblocks a background thread that is waiting on the socket, which then closes the page
+    ServiceNowTableRecordStream<T> page = currentPage;
+    if (page != null) {
+      page.abort();
+    }
+  }
+
+  private void fetchPages() {
+    try {
+      if (requester == null) {
+        fetchPagesInTurn();
+      } else {
+        fetchPagesInFlight();
+      }
+      queue.put(Batch.<T>end());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      if (!closed) {
+        // The queue is bounded, make room so the error is not lost behind rows nobody will read
+        queue.clear();
+        queue.offer(Batch.<T>error(e));
+      }
+    }
+  }
+
+  private void fetchPagesInTurn() throws IOException, InterruptedException {
+    for (int page = 0; page < pageCount && !closed; page++) {
+      int pageRows;
+      try (ServiceNowTableRecordStream<T> stream = fetcher.fetch(page, lastRow)) {
+        pageRows = emit(stream);
+      }
+
+      // A short page means the end of the table was reached
+      if (pageRows < pageSize) {
+        break;
+      }
+    }
+  }
+
+  private void fetchPagesInFlight() throws IOException, InterruptedException {
+    Deque<ServiceNowTableRecordFuture<T>> inFlight = new ArrayDeque<>();
+    int requested = 0;
+    try {
+      for (int page = 0; page < pageCount && !closed; page++) {
+        // A page that could not be sent right away is only sent once it is opened, the next pages wait for it
+        while (requested < pageCount && inFlight.size() < pagesInFlight
+          && (inFlight.isEmpty() || inFlight.peekLast().isSent())) {
+          inFlight.add(requester.request(requested++));
+        }
+
+        int pageRows;
+        try (ServiceNowTableRecordStream<T> stream = inFlight.poll().open()) {
+          pageRows = emit(stream);
+        }
+
+        // A short page means the end of the table was reached, the pages requested after it are not needed
+        if (pageRows < pageSize) {
+          break;
+        }
+      }
+    } finally {
+      inFlight.forEach(ServiceNowTableRecordFuture::cancel);
+    }
+  }
+
+  /**
+   * Hands the rows of a page over to the caller in batches and returns their number.
+   */
+  private int emit(ServiceNowTableRecordStream<T> stream) throws InterruptedException {
+    currentPage = stream;
+    try {
+      int pageRows = 0;
+      List<T> batch = new ArrayList<>(BATCH_SIZE);
+      while (stream.hasNext()) {
+        lastRow = stream.next();
+        batch.add(lastRow);
+        pageRows++;
+        if (batch.size() == BATCH_SIZE) {
+          queue.put(Batch.of(batch));
+          batch = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+      if (!batch.isEmpty()) {
+        queue.put(Batch.of(batch));
+      }
+      return pageRows;
+    } finally {
+      currentPage = null;
+    }
+  }
+
+  /**
+   * Opens the stream of rows of a page of the split.
+   *
+   * @param <T> The type of the decoded rows
+   */
+  interface PageFetcher<T> {
+
+    /**
+     * Returns the rows of the page with the given index, relative to the start of the split.
+     *
+     * @param page The index of the page
+     * @param lastRow The last row of the previous page, null for the first page
+     */
+    ServiceNowTableRecordStream<T> fetch(int page, @Nullable T lastRow) throws IOException;
+  }
+
+  /**
+   * Sends the request of a page of the split without waiting for its response.
+   *
+   * @param <T> The type of the decoded rows
+   */
+  interface PageRequester<T> {
+
+    /**
+     * Returns the pending rows of the page with the given index, relative to the start of the split.
+     *
+     * @param page The index of the page
+     */
+    ServiceNowTableRecordFuture<T> request(int page) throws IOException;
+  }
+
+  /**
+   * A batch of decoded rows, the end of the split or the error that stopped the background thread.
+   */
+  private static final class Batch<T> {
+    private final List<T> rows;
+    private final Throwable error;
+
+    private Batch(List<T> rows, Throwable error) {
+      this.rows = rows;
+      this.error = error;
+    }
+
+    static <T> Batch<T> of(List<T> rows) {
+      return new Batch<>(rows, null);
+    }
+
+    static <T> Batch<T> end() {
+      return new Batch<>(null, null);
+    }
+
+    static <T> Batch<T> error(Throwable error) {
+      return new Batch<>(null, error);
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.servicenow.source.apiclient.ServiceNowRowDecoder;
+import io.cdap.plugin.servicenow.source.util.ServiceNowDateTimeParser;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Decodes ServiceNow table rows straight from the JSON tokens into {@link StructuredRecord}s.
+ * The decoder is built once per schema, which resolves the conversion of every field up front. ServiceNow returns
+ * the members of every row in the same order, so the fields are matched by position against the previous row and
+ * looked up by name only when the order differs. JSON members that are not part of the schema are skipped without
+ * being materialized.
+ */
+public class ServiceNowRecordDecoder implements ServiceNowRowDecoder<StructuredRecord> {
+  private static final JsonParser JSON_PARSER = new JsonParser();
+
+  private final Schema schema;
+  private final Map<String, FieldSlot> fields;
+  private final String tableNameField;
+  private final String tableName;
+  private final ServiceNowDateTimeParser dateTimeParser;
+  private FieldSlot[] memberOrder;
+
+  /**
+   * Constructor for ServiceNowRecordDecoder object.
+   *
+   * @param schema The schema of the records to be built
+   * @param tableNameField The name of the field that holds the table name, null if it is not part of the schema
+   * @param tableName The table name
+   */
+  public ServiceNowRecordDecoder(Schema schema, @Nullable String tableNameField, String tableName) {
+    this.schema = schema;
+    this.tableNameField = tableNameField;
+    this.tableName = tableName;
+    this.dateTimeParser = new ServiceNowDateTimeParser();
+    this.fields = new HashMap<>();
+    for (Schema.Field field : schema.getFields()) {
+      if (!field.getName().equals(tableNameField)) {
+        Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+        fields.put(field.getName(), new FieldSlot(field.getName(), fieldSchema.getType(),
+                                                  createConverter(field.getName(), fieldSchema)));
+      }
+    }
+    this.memberOrder = new FieldSlot[fields.size()];
+  }
+
+  @Override
+  public StructuredRecord decode(JsonReader reader) throws IOException {
+    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
+    if (tableNameField != null) {
+      recordBuilder.set(tableNameField, tableName);
+    }
+
+    reader.beginObject();
+    for (int member = 0; reader.hasNext(); member++) {
+      FieldSlot field = getField(member, reader.nextName());
+      if (field.converter == null) {
+        reader.skipValue();
+        continue;
+      }
+
+      recordBuilder.set(field.name, readValue(reader, field));
+    }
+    reader.endObject();
+
+    return recordBuilder.build();
+  }
+
+  private FieldSlot getField(int member, String name) {
+    if (member < memberOrder.length) {
+      FieldSlot field = memberOrder[member];
+      if (field != null && field.name.equals(name)) {
+        return field;
+      }
+    } else {
+      memberOrder = Arrays.copyOf(memberOrder, Math.max(member + 1, memberOrder.length * 2));
+    }
+
+    FieldSlot field = fields.get(name);
+    if (field == null) {
+      // Remember unknown members too, so that they are recognized by position in the next rows
+      field = new FieldSlot(name);
+    }
+    memberOrder[member] = field;
+    return field;
+  }
+
+  @Nullable
+  private Object readValue(JsonReader reader, FieldSlot field) throws IOException {
+    switch (reader.peek()) {
+      case NULL:
+        reader.nextNull();
+        return null;
+      case BEGIN_OBJECT:
+      case BEGIN_ARRAY:
+        if (field.type != Schema.Type.STRING) {
+          throw new IllegalStateException(
+            String.format("Field '%s' of type '%s' cannot hold a JSON %s", field.name, field.type, reader.peek()));
+        }
+        return JSON_PARSER.parse(reader).toString();
+      case BOOLEAN:
+        return field.converter.convert(String.valueOf(reader.nextBoolean()));
+      default:
+        // Strings and numbers, ServiceNow sends every value as a JSON string
+        return field.converter.convert(reader.nextString());
+    }
+  }
+
+  private ValueConverter createConverter(String name, Schema fieldSchema) {
+    Schema.LogicalType logicalType = fieldSchema.getLogicalType();
+    if (logicalType != null) {
+      return createLogicalTypeConverter(name, fieldSchema, logicalType);
+    }
+
+    switch (fieldSchema.getType()) {
+      case STRING:
+        return value -> value;
+      case INT:
+        return value -> value.isEmpty() ? null : Integer.parseInt(value);
+      case LONG:
+        return value -> value.isEmpty() ? null : Long.parseLong(value);
+      case DOUBLE:
+        return value -> value.isEmpty() ? null : Double.parseDouble(value);
+      case BOOLEAN:
+        return value -> value.isEmpty() ? null : Boolean.parseBoolean(value);
+      default:
+        throw new IllegalStateException(
+          String.format("Record type '%s' is not supported for field '%s'", fieldSchema.getType().name(), name));
+    }
+  }
+
+  // Logical type values are set in their physical representation, as the typed setters of the record builder would
+  private ValueConverter createLogicalTypeConverter(String name, Schema fieldSchema, Schema.LogicalType logicalType) {
+    switch (logicalType) {
+      case DATE:
+        return value -> value.isEmpty() ? null : dateTimeParser.parseDate(value);
+      case TIMESTAMP_MICROS:
+        return value -> value.isEmpty() ? null : dateTimeParser.parseTimestampMicros(value);
+      case DECIMAL:
+        int precision = fieldSchema.getPrecision();
+        int scale = fieldSchema.getScale();
+        return value -> value.isEmpty() ? null : toDecimalBytes(name, value, precision, scale);
+      default:
+        throw new IllegalStateException(
+          String.format("Logical type '%s' is not supported for field '%s'", logicalType.getToken(), name));
+    }
+  }
+
+  private static byte[] toDecimalBytes(String name, String value, int precision, int scale) {
+    BigDecimal decimal;
+    try {
+      decimal = new BigDecimal(value).setScale(scale, RoundingMode.UNNECESSARY);
+    } catch (ArithmeticException e) {
+      throw new IllegalStateException(String.format("Value '%s' of field '%s' has more than %d decimal places",
+                                                    value, name, scale), e);
+    }
+    if (decimal.precision() > precision) {
+      throw new IllegalStateException(String.format("Value '%s' of field '%s' does not fit a decimal of precision %d",
+                                                    value, name, precision));
+    }
+    return decimal.unscaledValue().toByteArray();
+  }
+
+  /**
+   * Converts the string value of a field to the type of the field.
+   */
+  private interface ValueConverter {
+    @Nullable
+    Object convert(String value);
+  }
+
+  /**
+   * A schema field with its non-nullable type and its conversion resolved up front.
+   */
+  private static final class FieldSlot {
+    private final String name;
+    private final Schema.Type type;
+    private final ValueConverter converter;
+
+    private FieldSlot(String name, Schema.Type type, ValueConverter converter) {
+      this.name = name;
+      this.type = type;
+      this.converter = converter;
+    }
+
+    // A JSON member that is not part of the schema
+    private FieldSlot(String name) {
+      this.name = name;
+      this.type = null;
+      this.converter = null;
+    }
+  }
+}
@@ -16,13 +16,11 @@
 
 package io.cdap.plugin.servicenow.source;
 
-import com.google.common.base.Strings;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.servicenow.source.apiclient.ServiceNowTableAPIClientImpl;
-import io.cdap.plugin.servicenow.source.apiclient.ServiceNowTableDataResponse;
-import io.cdap.plugin.servicenow.source.util.SchemaBuilder;
 import io.cdap.plugin.servicenow.source.util.ServiceNowConstants;
+import io.cdap.plugin.servicenow.source.util.SourcePaginationMode;
 import io.cdap.plugin.servicenow.source.util.SourceQueryMode;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
@@ -33,35 +31,47 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 /**
- * Record reader that reads the entire contents of a ServiceNow table.
+ * Record reader that reads the pages of a ServiceNow table covered by a split.
+ * The pages are downloaded on a background thread one page ahead of the rows being emitted.
  */
 public class ServiceNowRecordReader extends RecordReader<NullWritable, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(ServiceNowRecordReader.class);
+  private static final int PREFETCH_PAGES = 1;
   private final ServiceNowSourceConfig pluginConf;
+  private final String snapshotTime;
+  private final SourceQueryMode queryMode;
+  private final SourcePaginationMode paginationMode;
   private ServiceNowInputSplit split;
+  private ServiceNowTableAPIClientImpl restApi;
   private int pos;
-  private List<Schema.Field> tableFields;
   private Schema schema;
 
   private String tableName;
   private String tableNameField;
-  private List<Map<String, Object>> results;
-  private Iterator<Map<String, Object>> iterator;
-  private Map<String, Object> row;
+  private String watermark;
+  private ServiceNowPagePrefetcher<StructuredRecord> results;
+  private StructuredRecord row;
 
-  ServiceNowRecordReader(ServiceNowSourceConfig pluginConf) {
+  ServiceNowRecordReader(ServiceNowSourceConfig pluginConf, String snapshotTime) {
     this.pluginConf = pluginConf;
+    this.snapshotTime = snapshotTime;
+    // Resolved once, the config getters look the values up again on every call
+    this.queryMode = pluginConf.getQueryMode();
+    this.paginationMode = pluginConf.getPaginationMode();
   }
 
   @Override
   public void initialize(InputSplit split, TaskAttemptContext context) {
     this.split = (ServiceNowInputSplit) split;
     this.pos = 0;
+    this.tableName = this.split.getTableName();
+    this.tableNameField = pluginConf.getTableNameField();
+    ServiceNowJobConfiguration jobConfig = new ServiceNowJobConfiguration(context.getConfiguration());
+    this.schema = buildSchema(jobConfig.getTableSchema(tableName));
+    this.watermark = jobConfig.getTableWatermark(tableName);
   }
 
   @Override
@@ -71,16 +81,16 @@ public class ServiceNowRecordReader extends RecordReader<NullWritable, Structure
         fetchData();
       }
 
-      if (!iterator.hasNext()) {
+      if (!results.hasNext()) {
         return false;
       }
 
-      row = iterator.next();
+      row = results.next();
 
       pos++;
     } catch (Exception e) {
-      LOG.error("Error in nextKeyValue", e);
-      throw new IOException("Exception in nextKeyValue", e);
+      LOG.error("Error decoding row from table " + tableName, e);
+      throw new IOException("Error decoding row from table " + tableName, e);
     }
     return true;
   }
@@ -91,24 +101,8 @@ public class ServiceNowRecordReader extends RecordReader<NullWritable, Structure
   }
 
   @Override
-  public StructuredRecord getCurrentValue() throws IOException {
-    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-
-    if (pluginConf.getQueryMode() == SourceQueryMode.REPORTING) {
-      recordBuilder.set(tableNameField, tableName);
-    }
-
-    try {
-      for (Schema.Field field : tableFields) {
-        String fieldName = field.getName();
-        Object fieldValue = convertToValue(fieldName, field.getSchema(), row);
-        recordBuilder.set(fieldName, fieldValue);
-      }
-    } catch (Exception e) {
-      LOG.error("Error decoding row from table " + tableName, e);
-      throw new IOException("Error decoding row from table " + tableName, e);
-    }
-    return recordBuilder.build();
+  public StructuredRecord getCurrentValue() {
+    return row;
   }
 
   @Override
@@ -118,98 +112,96 @@ public class ServiceNowRecordReader extends RecordReader<NullWritable, Structure
 
   @Override
   public void close() throws IOException {
+    if (results != null) {
+      results.close();
+    }
+    if (restApi != null) {
+      restApi.close();
+    }
   }
 
   private void fetchData() {
-    tableName = split.getTableName();
-    tableNameField = pluginConf.getTableNameField();
-
-    ServiceNowTableAPIClientImpl restApi = new ServiceNowTableAPIClientImpl(pluginConf);
-
-    // Get the table data
-    results = restApi.fetchTableRecords(tableName, pluginConf.getStartDate(), pluginConf.getEndDate(),
-      split.getOffset(), ServiceNowConstants.PAGE_SIZE);
-
-    LOG.debug("size={}", results.size());
-    if (!results.isEmpty()) {
-      fetchSchema(restApi);
+    restApi = new ServiceNowTableAPIClientImpl(pluginConf, snapshotTime, watermark);
+    if (split.getRequestsPerSecond() > 0) {
+      restApi.setRequestsPerSecond(split.getRequestsPerSecond());
+    }
+    restApi.setHedgeStreamingRequests(pluginConf.getHedgePageRequests());
+    int pagesInFlight = paginationMode == SourcePaginationMode.KEYSET ? 1 : pluginConf.getPagesInFlight();
+    if (pagesInFlight > 1) {
+      restApi.startAsyncEngine(pagesInFlight);
     }
 
-    iterator = results.iterator();
-  }
+    ServiceNowRecordDecoder decoder = new ServiceNowRecordDecoder(schema,
+      queryMode == SourceQueryMode.REPORTING ? tableNameField : null, tableName);
 
-  private void fetchSchema(ServiceNowTableAPIClientImpl restApi) {
-    // Fetch the column definition
-    ServiceNowTableDataResponse response = restApi.fetchTableSchema(tableName, null, null,
-      false);
-    if (response == null) {
+    // Get the table data, page by page in the background
+    if (paginationMode == SourcePaginationMode.KEYSET) {
+      fetchDataBySysId(decoder);
       return;
     }
-
-    // Build schema
-    SchemaBuilder schemaBuilder = new SchemaBuilder();
-    Schema tempSchema = schemaBuilder.constructSchema(tableName, response.getColumns());
-    tableFields = tempSchema.getFields();
-    List<Schema.Field> schemaFields = new ArrayList<>(tableFields);
-
-    if (pluginConf.getQueryMode() == SourceQueryMode.REPORTING) {
-      schemaFields.add(Schema.Field.of(tableNameField, Schema.of(Schema.Type.STRING)));
+    if (paginationMode == SourcePaginationMode.TIME_WINDOW) {
+      fetchDataByUpdatedOn(decoder, pagesInFlight);
+      return;
     }
 
-    schema = Schema.recordOf(tableName, schemaFields);
-  }
-
-  private Object convertToValue(String fieldName, Schema fieldSchema, Map<String, Object> record) {
-    Schema.Type fieldType = fieldSchema.getType();
-    Object fieldValue = record.get(fieldName);
-
-    switch (fieldType) {
-      case STRING:
-        return convertToStringValue(fieldValue);
-      case DOUBLE:
-        return convertToDoubleValue(fieldValue);
-      case INT:
-        return convertToIntegerValue(fieldValue);
-      case BOOLEAN:
-        return convertToBooleanValue(fieldValue);
-      case UNION:
-        if (fieldSchema.isNullable()) {
-          return convertToValue(fieldName, fieldSchema.getNonNullable(), record);
-        }
-        throw new IllegalStateException(
-          String.format("Field '%s' is of unexpected type '%s'. Declared 'complex UNION' types: %s",
-            fieldName, record.get(fieldName).getClass().getSimpleName(), fieldSchema.getUnionSchemas()));
-      default:
-        throw new IllegalStateException(
-          String.format("Record type '%s' is not supported for field '%s'", fieldType.name(), fieldName));
+    String threadName = String.format("servicenow-prefetch-%s-%d", tableName, split.getOffset());
+    if (pagesInFlight > 1) {
+      results = new ServiceNowPagePrefetcher<>(threadName, split.getPageCount(), ServiceNowConstants.PAGE_SIZE,
+        PREFETCH_PAGES, pagesInFlight, page -> restApi.requestTableRecords(tableName, pluginConf.getStartDate(),
+        pluginConf.getEndDate(), split.getOffset() + page * ServiceNowConstants.PAGE_SIZE,
+        ServiceNowConstants.PAGE_SIZE, decoder));
+      return;
     }
+    results = new ServiceNowPagePrefetcher<>(threadName, split.getPageCount(), ServiceNowConstants.PAGE_SIZE,
+      PREFETCH_PAGES, (page, lastRow) -> restApi.fetchTableRecords(tableName, pluginConf.getStartDate(),
+      pluginConf.getEndDate(), split.getOffset() + page * ServiceNowConstants.PAGE_SIZE,
+      ServiceNowConstants.PAGE_SIZE, decoder));
   }
 
-  private String convertToStringValue(Object fieldValue) {
-    return String.valueOf(fieldValue);
-  }
-
-  private Double convertToDoubleValue(Object fieldValue) {
-    if (fieldValue instanceof String && Strings.isNullOrEmpty(String.valueOf(fieldValue))) {
-      return null;
+  private void fetchDataBySysId(ServiceNowRecordDecoder decoder) {
+    if (schema.getField(ServiceNowConstants.SYS_ID_FIELD) == null) {
+      throw new IllegalStateException(String.format("Table '%s' cannot be read in Keyset pagination mode as it has " +
+                                                      "no '%s' column", tableName, ServiceNowConstants.SYS_ID_FIELD));
     }
 
-    return Double.parseDouble(String.valueOf(fieldValue));
+    // The split is bounded by its sys_id range rather than by a number of pages, every page resumes after the
+    // last sys_id read and a short page marks the end of the range
+    String threadName = String.format("servicenow-prefetch-%s-%s", tableName, split.getLowerBound());
+    results = new ServiceNowPagePrefetcher<>(threadName, Integer.MAX_VALUE, ServiceNowConstants.PAGE_SIZE,
+      PREFETCH_PAGES, (page, lastRow) -> lastRow == null
+      ? restApi.fetchTableRecordsBySysId(tableName, pluginConf.getStartDate(), pluginConf.getEndDate(),
+                                         split.getLowerBound(), true, split.getUpperBound(),
+                                         ServiceNowConstants.PAGE_SIZE, decoder)
+      : restApi.fetchTableRecordsBySysId(tableName, pluginConf.getStartDate(), pluginConf.getEndDate(),
+                                         lastRow.get(ServiceNowConstants.SYS_ID_FIELD), false,
+                                         split.getUpperBound(), ServiceNowConstants.PAGE_SIZE, decoder));
   }
 
-  private Integer convertToIntegerValue(Object fieldValue) {
-    if (fieldValue instanceof String && Strings.isNullOrEmpty(String.valueOf(fieldValue))) {
-      return null;
+  private Schema buildSchema(Schema tableSchema) {
+    // Use the schema planned for the table, so that all the splits of the table build the same records
+    List<Schema.Field> schemaFields = new ArrayList<>(tableSchema.getFields());
+
+    if (queryMode == SourceQueryMode.REPORTING) {
+      schemaFields.add(Schema.Field.of(tableNameField, Schema.of(Schema.Type.STRING)));
     }
 
-    return Integer.parseInt(String.valueOf(fieldValue));
+    return Schema.recordOf(tableName, schemaFields);
   }
 
-  private Boolean convertToBooleanValue(Object fieldValue) {
-    if (fieldValue instanceof String && Strings.isNullOrEmpty(String.valueOf(fieldValue))) {
-      return null;
+  private void fetchDataByUpdatedOn(ServiceNowRecordDecoder decoder, int pagesInFlight) {
+    // The split is bounded by its window of update times rather than by a number of pages, the offsets stay within
+    // the window and a short page marks its end
+    String threadName = String.format("servicenow-prefetch-%s-%s", tableName, split.getLowerBound());
+    if (pagesInFlight > 1) {
+      results = new ServiceNowPagePrefetcher<>(threadName, Integer.MAX_VALUE, ServiceNowConstants.PAGE_SIZE,
+        PREFETCH_PAGES, pagesInFlight, page -> restApi.requestTableRecordsByUpdatedOn(
+          tableName, pluginConf.getStartDate(), pluginConf.getEndDate(), split.getLowerBound(), split.getUpperBound(),
+          page * ServiceNowConstants.PAGE_SIZE, ServiceNowConstants.PAGE_SIZE, decoder));
+      return;
     }
-
-    return Boolean.parseBoolean(String.valueOf(fieldValue));
+    results = new ServiceNowPagePrefetcher<>(threadName, Integer.MAX_VALUE, ServiceNowConstants.PAGE_SIZE,
+      PREFETCH_PAGES, (page, lastRow) -> restApi.fetchTableRecordsByUpdatedOn(
+        tableName, pluginConf.getStartDate(), pluginConf.getEndDate(), split.getLowerBound(), split.getUpperBound(),
+        page * ServiceNowConstants.PAGE_SIZE, ServiceNowConstants.PAGE_SIZE, decoder));
   }
 }
@@ -34,14 +34,19 @@ import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.common.SourceInputFormatProvider;
 import io.cdap.plugin.servicenow.source.util.ServiceNowConstants;
 import io.cdap.plugin.servicenow.source.util.ServiceNowTableInfo;
+import io.cdap.plugin.servicenow.source.util.ServiceNowWatermarkStore;
 import io.cdap.plugin.servicenow.source.util.SourceQueryMode;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -57,6 +62,7 @@ public class ServiceNowSource extends BatchSource<NullWritable, StructuredRecord
   private static final Logger LOG = LoggerFactory.getLogger(ServiceNowSource.class);
 
   private final ServiceNowSourceConfig conf;
+  private Map<String, String> nextWatermarks;
 
   public ServiceNowSource(ServiceNowSourceConfig conf) {
     this.conf = conf;
@@ -85,7 +91,19 @@ public class ServiceNowSource extends BatchSource<NullWritable, StructuredRecord
     SourceQueryMode mode = conf.getQueryMode(collector);
 
     Configuration hConf = new Configuration();
-    Collection<ServiceNowTableInfo> tables = ServiceNowInputFormat.setInput(hConf, mode, conf);
+    String watermarkPath = conf.getWatermarkPath();
+    Map<String, String> watermarks = watermarkPath == null ? Collections.emptyMap() :
+      new ServiceNowWatermarkStore(watermarkPath, hConf).read();
+    Collection<ServiceNowTableInfo> tables = ServiceNowInputFormat.setInput(hConf, mode, conf, watermarks);
+
+    // The tables read by this run will have been read up to the snapshot time once the run succeeds, as a watermark
+    // is only kept in Keyset pagination mode, which does not skip the records that change during the run
+    String snapshotTime = new ServiceNowJobConfiguration(hConf).getSnapshotTime();
+    nextWatermarks = new HashMap<>(watermarks);
+    for (ServiceNowTableInfo tableInfo : tables) {
+      nextWatermarks.put(tableInfo.getTableName(), snapshotTime);
+    }
+
     SettableArguments arguments = context.getArguments();
     for (ServiceNowTableInfo tableInfo : tables) {
       arguments.set(ServiceNowConstants.TABLE_PREFIX + tableInfo.getTableName(), tableInfo.getSchema().toString());
@@ -96,6 +114,24 @@ public class ServiceNowSource extends BatchSource<NullWritable, StructuredRecord
       new SourceInputFormatProvider(ServiceNowInputFormat.class, hConf)));
   }
 
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+
+    String watermarkPath = conf.getWatermarkPath();
+    if (!succeeded || watermarkPath == null || nextWatermarks == null) {
+      return;
+    }
+
+    try {
+      new ServiceNowWatermarkStore(watermarkPath, new Configuration()).write(nextWatermarks);
+      LOG.info("Updated the watermark file {}", watermarkPath);
+    } catch (IOException e) {
+      // The next run reads again the records of this run, from the previous watermarks
+      throw new IllegalStateException(String.format("Unable to update the watermark file '%s'", watermarkPath), e);
+    }
+  }
+
   @Override
   public void transform(KeyValue<NullWritable, StructuredRecord> input, Emitter<StructuredRecord> emitter) {
     emitter.emit(input.getValue());
@@ -27,19 +27,31 @@ import io.cdap.plugin.common.IdUtils;
 import io.cdap.plugin.servicenow.source.apiclient.ServiceNowTableAPIClientImpl;
 import io.cdap.plugin.servicenow.source.util.ServiceNowConstants;
 import io.cdap.plugin.servicenow.source.util.SourceApplication;
+import io.cdap.plugin.servicenow.source.util.SourcePaginationMode;
 import io.cdap.plugin.servicenow.source.util.SourceQueryMode;
 import io.cdap.plugin.servicenow.source.util.SourceValueType;
 import io.cdap.plugin.servicenow.source.util.Util;
 
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
 /**
  * Configuration for the {@link ServiceNowSource}.
  */
 public class ServiceNowSourceConfig extends PluginConfig {
+  // Column names, dot-walked through references or not
+  private static final Pattern COLUMN_NAME_PATTERN = Pattern.compile("[A-Za-z0-9_]+(\\.[A-Za-z0-9_]+)*");
+
   @Name(Constants.Reference.REFERENCE_NAME)
   @Description("This will be used to uniquely identify this source for lineage, annotating metadata, etc.")
   private String referenceName;
@@ -111,15 +123,124 @@ public class ServiceNowSourceConfig extends PluginConfig {
   @Name(ServiceNowConstants.PROPERTY_START_DATE)
   @Macro
   @Nullable
-  @Description("The Start date to be used to filter the data. The format must be 'yyyy-MM-dd'.")
+  @Description("The Start date to be used to filter the data. The format must be 'yyyy-MM-dd', to read from the " +
+    "start of the day, or 'yyyy-MM-dd HH:mm:ss', to read from that time on.")
   private String startDate;
 
   @Name(ServiceNowConstants.PROPERTY_END_DATE)
   @Macro
   @Nullable
-  @Description("The End date to be used to filter the data. The format must be 'yyyy-MM-dd'.")
+  @Description("The End date to be used to filter the data. The format must be 'yyyy-MM-dd', to read up to the end " +
+    "of the day, or 'yyyy-MM-dd HH:mm:ss', to read up to that time, excluded. It must use the same format as the " +
+    "Start date.")
   private String endDate;
 
+  @Name(ServiceNowConstants.PROPERTY_TIME_ZONE)
+  @Macro
+  @Nullable
+  @Description("The time zone of the Start and End dates when they are given as 'yyyy-MM-dd HH:mm:ss' date times, " +
+    "as a region such as 'America/New_York' or an offset such as '+05:30'. Defaults to GMT.")
+  private String timeZone;
+
+  @Name(ServiceNowConstants.PROPERTY_DATE_RANGE_FIELD)
+  @Macro
+  @Nullable
+  @Description("The date column the Start and End dates are applied to, for example 'sys_updated_on' or " +
+    "'sys_created_on'. A single column lets ServiceNow use its index on large tables. When no column is specified, " +
+    "the records created or updated within the range are read.")
+  private String dateRangeField;
+
+  @Name(ServiceNowConstants.PROPERTY_ENCODED_QUERY)
+  @Macro
+  @Nullable
+  @Description("ServiceNow encoded query filtering the records to be read, for example " +
+    "'active=true^assignment_group=287ebd7da9fe198100f92cc8d1d2154e'. The query is combined with the date range, " +
+    "and applies to every table read. It cannot contain '^NQ', '^EQ', 'ORDERBY' or 'GROUPBY' clauses.")
+  private String encodedQuery;
+
+  @Name(ServiceNowConstants.PROPERTY_MAX_CONNECTIONS_PER_ROUTE)
+  @Macro
+  @Nullable
+  @Description("The maximum number of keep-alive connections to the ServiceNow instance that are pooled and shared " +
+    "by all the readers running in the same executor. Defaults to 20.")
+  private Integer maxConnectionsPerRoute;
+
+  @Name(ServiceNowConstants.PROPERTY_PAGES_PER_SPLIT)
+  @Macro
+  @Nullable
+  @Description("The number of pages of 5000 records read by each split. The pages of a split are prefetched in the " +
+    "background while the previous page is being emitted, so fewer, larger splits reduce the time spent waiting on " +
+    "the network. Defaults to 1.")
+  private Integer pagesPerSplit;
+
+  @Name(ServiceNowConstants.PROPERTY_PAGINATION_MODE)
+  @Macro
+  @Nullable
+  @Description("How the pages of a table are requested. The mode can be one of three values: "
+    + "`Offset` - pages are requested by position, the server skips all the preceding rows for every page, "
+    + "`Keyset` - pages are requested in sys_id order and resume after the last sys_id read, so every page costs "
+    + "the same regardless of its depth, "
+    + "`Time Window` - each split reads the records last updated within a window of time planned from record "
+    + "counts, with shallow offsets within the window. Defaults to Offset.")
+  private String paginationMode;
+
+  @Name(ServiceNowConstants.PROPERTY_FIELDS)
+  @Macro
+  @Nullable
+  @Description("Comma separated list of the columns to be read. Only these columns are requested from ServiceNow, " +
+    "which reduces the size of the responses. All the columns are read when no column is specified.")
+  private String fields;
+
+  @Name(ServiceNowConstants.PROPERTY_SCHEMA_SAMPLE_SIZE)
+  @Macro
+  @Nullable
+  @Description("The number of records sampled to infer the schema of a table whose dictionary cannot be read, or " +
+    "when display values are read. The records are read in parallel from pages spread across the table and every " +
+    "column seen in any of them is kept. When more than one actual value record is sampled, integer, decimal and " +
+    "boolean columns are also inferred from the values. Defaults to 1, the first record, all columns as strings.")
+  private Integer schemaSampleSize;
+
+  @Name(ServiceNowConstants.PROPERTY_WATERMARK_PATH)
+  @Macro
+  @Nullable
+  @Description("Path of the file that keeps, for each table, the time up to which its records were read. When set, " +
+    "each run only reads the records updated after that time, and the file is updated once the run succeeds. " +
+    "Requires the Keyset pagination mode, as the other modes may skip records that change during a run. " +
+    "Any file system supported by Hadoop can be used, for example `file:///var/servicenow/watermarks.json` " +
+    "or `gs://bucket/servicenow/watermarks.json`.")
+  private String watermarkPath;
+
+  @Name(ServiceNowConstants.PROPERTY_MAX_REQUESTS_PER_SECOND)
+  @Macro
+  @Nullable
+  @Description("The maximum number of requests per second sent to the ServiceNow instance by all the splits " +
+    "together. Each split is given an equal share, as they may all run at the same time. No limit when empty.")
+  private Integer maxRequestsPerSecond;
+
+  @Name(ServiceNowConstants.PROPERTY_EXPECTED_PARALLELISM)
+  @Macro
+  @Nullable
+  @Description("The number of splits expected to run at the same time, usually the number of executors times the " +
+    "cores of each. The max requests per second are divided between that many splits rather than all of them. " +
+    "When empty, all the splits are assumed to run at the same time.")
+  private Integer expectedParallelism;
+
+  @Name(ServiceNowConstants.PROPERTY_HEDGE_PAGE_REQUESTS)
+  @Macro
+  @Nullable
+  @Description("Whether a copy of a page request is sent when its response is slower to start than 95% of the " +
+    "recent responses, keeping whichever response starts first. Copies are limited to 5% of the requests. " +
+    "Defaults to false.")
+  private Boolean hedgePageRequests;
+
+  @Name(ServiceNowConstants.PROPERTY_PAGES_IN_FLIGHT)
+  @Macro
+  @Nullable
+  @Description("The number of page requests each split keeps in flight over connections of its own, its responses " +
+    "being decoded in page order. Applies to the Offset and Time Window pagination modes, Keyset pages are always " +
+    "requested one after the other. Defaults to 1.")
+  private Integer pagesInFlight;
+
   /**
    * Constructor for ServiceNowSourceConfig object.
    *
@@ -136,11 +257,31 @@ public class ServiceNowSourceConfig extends PluginConfig {
    * @param valueType The value type
    * @param startDate The start date
    * @param endDate The end date
+   * @param maxConnectionsPerRoute The maximum number of pooled connections per route
+   * @param pagesPerSplit The number of pages read by each split
+   * @param paginationMode The pagination mode
+   * @param fields The comma separated list of columns to be read
+   * @param schemaSampleSize The number of records sampled to infer the schema of a table
+   * @param watermarkPath The path of the file holding the watermark of each table
+   * @param timeZone The time zone of the start and end date times
+   * @param dateRangeField The date column the start and end dates are applied to
+   * @param encodedQuery The encoded query filtering the records to be read
+   * @param maxRequestsPerSecond The maximum number of requests per second sent by all the splits together
+   * @param expectedParallelism The number of splits expected to run at the same time
+   * @param hedgePageRequests Whether slow page requests are hedged with a copy
+   * @param pagesInFlight The number of page requests each split keeps in flight
    */
   public ServiceNowSourceConfig(String referenceName, String queryMode, @Nullable String applicationName,
                                 @Nullable String tableNameField, @Nullable String tableName, String clientId,
                                 String clientSecret, String restApiEndpoint, String user, String password,
-                                String valueType, @Nullable String startDate, @Nullable String endDate) {
+                                String valueType, @Nullable String startDate, @Nullable String endDate,
+                                @Nullable Integer maxConnectionsPerRoute, @Nullable Integer pagesPerSplit,
+                                @Nullable String paginationMode, @Nullable String fields,
+                                @Nullable Integer schemaSampleSize, @Nullable String watermarkPath,
+                                @Nullable String timeZone, @Nullable String dateRangeField,
+                                @Nullable String encodedQuery, @Nullable Integer maxRequestsPerSecond,
+                                @Nullable Integer expectedParallelism, @Nullable Boolean hedgePageRequests,
+                                @Nullable Integer pagesInFlight) {
     this.referenceName = referenceName;
     this.queryMode = queryMode;
     this.applicationName = applicationName;
@@ -154,6 +295,19 @@ public class ServiceNowSourceConfig extends PluginConfig {
     this.valueType = valueType;
     this.startDate = startDate;
     this.endDate = endDate;
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    this.pagesPerSplit = pagesPerSplit;
+    this.paginationMode = paginationMode;
+    this.fields = fields;
+    this.schemaSampleSize = schemaSampleSize;
+    this.watermarkPath = watermarkPath;
+    this.timeZone = timeZone;
+    this.dateRangeField = dateRangeField;
+    this.encodedQuery = encodedQuery;
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
+    this.expectedParallelism = expectedParallelism;
+    this.hedgePageRequests = hedgePageRequests;
+    this.pagesInFlight = pagesInFlight;
   }
 
   public String getReferenceName() {
@@ -292,6 +446,122 @@ public class ServiceNowSourceConfig extends PluginConfig {
     return endDate;
   }
 
+  /**
+   * Returns the time zone of the start and end date times, GMT when none is set.
+   *
+   * @return The time zone, null if the value is not a valid time zone
+   */
+  @Nullable
+  public ZoneId getTimeZone() {
+    if (Util.isNullOrEmpty(timeZone)) {
+      return ZoneOffset.UTC;
+    }
+
+    try {
+      return ZoneId.of(timeZone.trim());
+    } catch (DateTimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the date column the start and end dates are applied to.
+   *
+   * @return The column name, null if the range applies to both the creation and the update dates
+   */
+  @Nullable
+  public String getDateRangeField() {
+    return Util.isNullOrEmpty(dateRangeField) ? null : dateRangeField.trim();
+  }
+
+  /**
+   * Returns the encoded query filtering the records to be read.
+   *
+   * @return The encoded query, null if the records are only filtered by the date range
+   */
+  @Nullable
+  public String getEncodedQuery() {
+    return Util.isNullOrEmpty(encodedQuery) ? null : encodedQuery.trim();
+  }
+
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute == null ? ServiceNowConstants.DEFAULT_MAX_CONNECTIONS_PER_ROUTE :
+      maxConnectionsPerRoute;
+  }
+
+  public int getPagesPerSplit() {
+    return pagesPerSplit == null ? ServiceNowConstants.DEFAULT_PAGES_PER_SPLIT : pagesPerSplit;
+  }
+
+  /**
+   * Returns the pagination mode chosen, {@link SourcePaginationMode#OFFSET} when none is set.
+   *
+   * @return An instance of SourcePaginationMode, null if the value is not supported
+   */
+  @Nullable
+  public SourcePaginationMode getPaginationMode() {
+    if (Util.isNullOrEmpty(paginationMode)) {
+      return SourcePaginationMode.OFFSET;
+    }
+
+    Optional<SourcePaginationMode> mode = SourcePaginationMode.fromValue(paginationMode);
+
+    return mode.isPresent() ? mode.get() : null;
+  }
+
+  /**
+   * Returns the columns to be read.
+   *
+   * @return The list of column names, empty when all the columns are to be read
+   */
+  public List<String> getFields() {
+    if (Util.isNullOrEmpty(fields)) {
+      return Collections.emptyList();
+    }
+
+    return Arrays.stream(fields.split(","))
+      .map(String::trim)
+      .filter(field -> !field.isEmpty())
+      .distinct()
+      .collect(Collectors.toList());
+  }
+
+  public int getSchemaSampleSize() {
+    return schemaSampleSize == null ? ServiceNowConstants.DEFAULT_SCHEMA_SAMPLE_SIZE : schemaSampleSize;
+  }
+
+  /**
+   * Returns the path of the watermark file, null if every run reads all the records.
+   */
+  @Nullable
+  public String getWatermarkPath() {
+    return Util.isNullOrEmpty(watermarkPath) ? null : watermarkPath.trim();
+  }
+
+  /**
+   * Returns the maximum number of requests per second sent by all the splits together, null if there is no limit.
+   */
+  @Nullable
+  public Integer getMaxRequestsPerSecond() {
+    return maxRequestsPerSecond;
+  }
+
+  /**
+   * Returns the number of splits expected to run at the same time, null if it is not known.
+   */
+  @Nullable
+  public Integer getExpectedParallelism() {
+    return expectedParallelism;
+  }
+
+  public boolean getHedgePageRequests() {
+    return hedgePageRequests != null && hedgePageRequests;
+  }
+
+  public int getPagesInFlight() {
+    return pagesInFlight == null ? ServiceNowConstants.DEFAULT_PAGES_IN_FLIGHT : pagesInFlight;
+  }
+
   /**
    * Validates {@link ServiceNowSourceConfig} instance.
    */
@@ -303,6 +573,17 @@ public class ServiceNowSourceConfig extends PluginConfig {
     validateQueryMode(collector);
     validateValueType(collector);
     validateDateRange(collector);
+    validateTimeZone(collector);
+    validateDateRangeField(collector);
+    validateEncodedQuery(collector);
+    validateMaxConnectionsPerRoute(collector);
+    validatePagesPerSplit(collector);
+    validatePaginationMode(collector);
+    validateWatermarkPath(collector);
+    validateSchemaSampleSize(collector);
+    validateMaxRequestsPerSecond(collector);
+    validateExpectedParallelism(collector);
+    validatePagesInFlight(collector);
   }
 
   private void validateCredentials(FailureCollector collector) {
@@ -340,8 +621,7 @@ public class ServiceNowSourceConfig extends PluginConfig {
 
   @VisibleForTesting
   void validateServiceNowConnection(FailureCollector collector) {
-    try {
-      ServiceNowTableAPIClientImpl restApi = new ServiceNowTableAPIClientImpl(this);
+    try (ServiceNowTableAPIClientImpl restApi = new ServiceNowTableAPIClientImpl(this)) {
       restApi.getAccessToken();
     } catch (Exception e) {
       collector.addFailure("Unable to connect to ServiceNow Instance.",
@@ -415,21 +695,33 @@ public class ServiceNowSourceConfig extends PluginConfig {
       return;
     }
 
-    // validate the date formats for both start date & end date
-    if (!Util.isValidDateFormat(ServiceNowConstants.DATE_FORMAT, startDate)) {
+    // validate the date formats for both start date & end date, which are either both dates or both date times
+    boolean dateTimeRange = Util.isValidDateFormat(ServiceNowConstants.DATE_TIME_FORMAT, startDate);
+    if (!dateTimeRange && !Util.isValidDateFormat(ServiceNowConstants.DATE_FORMAT, startDate)) {
       collector.addFailure("Invalid format for Start date. Correct Format: " +
-                             ServiceNowConstants.DATE_FORMAT, null)
+                             ServiceNowConstants.DATE_FORMAT + " or " + ServiceNowConstants.DATE_TIME_FORMAT, null)
         .withConfigProperty(ServiceNowConstants.PROPERTY_START_DATE);
       return;
     }
 
-    if (!Util.isValidDateFormat(ServiceNowConstants.DATE_FORMAT, endDate)) {
-      collector.addFailure("Invalid format for End date. Correct Format:" +
-                             ServiceNowConstants.DATE_FORMAT, null)
+    String format = dateTimeRange ? ServiceNowConstants.DATE_TIME_FORMAT : ServiceNowConstants.DATE_FORMAT;
+    if (!Util.isValidDateFormat(format, endDate)) {
+      collector.addFailure("Invalid format for End date. Correct Format:" + format,
+                           "End date must use the same format as Start date.")
         .withConfigProperty(ServiceNowConstants.PROPERTY_END_DATE);
       return;
     }
 
+    // The end of a date time range is excluded, so that consecutive ranges do not overlap
+    if (dateTimeRange) {
+      if (!Util.parseDateTime(endDate).isAfter(Util.parseDateTime(startDate))) {
+        collector.addFailure("End date must be greater than Start date.", null)
+          .withConfigProperty(ServiceNowConstants.PROPERTY_START_DATE)
+          .withConfigProperty(ServiceNowConstants.PROPERTY_END_DATE);
+      }
+      return;
+    }
+
     // validate the date range by checking if start date is smaller than end date
     LocalDate fromDate = LocalDate.parse(startDate);
     LocalDate toDate = LocalDate.parse(endDate);
@@ -442,6 +734,142 @@ public class ServiceNowSourceConfig extends PluginConfig {
     }
   }
 
+  private void validateTimeZone(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_TIME_ZONE)) {
+      return;
+    }
+
+    if (getTimeZone() == null) {
+      collector.addFailure("Invalid time zone: " + timeZone,
+                           "Time zone must be a region such as 'America/New_York' or an offset such as '+05:30'.")
+        .withConfigProperty(ServiceNowConstants.PROPERTY_TIME_ZONE);
+    }
+  }
+
+  private void validateDateRangeField(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_DATE_RANGE_FIELD) || getDateRangeField() == null) {
+      return;
+    }
+
+    // The column is spliced into the encoded query, which must not be altered by it
+    if (!COLUMN_NAME_PATTERN.matcher(getDateRangeField()).matches()) {
+      collector.addFailure("Invalid date range field: " + dateRangeField,
+                           "Date range field must be a column name such as 'sys_updated_on'.")
+        .withConfigProperty(ServiceNowConstants.PROPERTY_DATE_RANGE_FIELD);
+    }
+  }
+
+  private void validateEncodedQuery(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_ENCODED_QUERY) || getEncodedQuery() == null) {
+      return;
+    }
+
+    // The query is AND'ed with the date range and the snapshot bound, and the reads rely on their own ordering:
+    // a new query would escape both bounds and any ordering would reorder the pages
+    for (String term : getEncodedQuery().split("\\^")) {
+      if (term.startsWith("NQ") || term.equals("EQ") || term.startsWith("ORDERBY") || term.startsWith("GROUPBY")) {
+        collector.addFailure("Unsupported clause in encoded query: " + term,
+                             "Encoded query cannot contain '^NQ', '^EQ', 'ORDERBY' or 'GROUPBY' clauses.")
+          .withConfigProperty(ServiceNowConstants.PROPERTY_ENCODED_QUERY);
+        return;
+      }
+    }
+  }
+
+  private void validateMaxConnectionsPerRoute(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_MAX_CONNECTIONS_PER_ROUTE) || maxConnectionsPerRoute == null) {
+      return;
+    }
+
+    if (maxConnectionsPerRoute < 1) {
+      collector.addFailure("Max connections per route must be greater than 0.", null)
+        .withConfigProperty(ServiceNowConstants.PROPERTY_MAX_CONNECTIONS_PER_ROUTE);
+    }
+  }
+
+  private void validatePagesPerSplit(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_PAGES_PER_SPLIT) || pagesPerSplit == null) {
+      return;
+    }
+
+    if (pagesPerSplit < 1) {
+      collector.addFailure("Pages per split must be greater than 0.", null)
+        .withConfigProperty(ServiceNowConstants.PROPERTY_PAGES_PER_SPLIT);
+    }
+  }
+
+  private void validatePaginationMode(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_PAGINATION_MODE)) {
+      return;
+    }
+
+    if (getPaginationMode() == null) {
+      collector.addFailure("Unsupported pagination mode: " + paginationMode,
+        String.format("Supported pagination modes are: %s", SourcePaginationMode.getSupportedModes()))
+        .withConfigProperty(ServiceNowConstants.PROPERTY_PAGINATION_MODE);
+    }
+  }
+
+  private void validateWatermarkPath(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_WATERMARK_PATH)
+      || containsMacro(ServiceNowConstants.PROPERTY_PAGINATION_MODE) || getWatermarkPath() == null) {
+      return;
+    }
+
+    // A record skipped by a run that pages by position was updated before the new watermark, no later run reads it
+    SourcePaginationMode mode = getPaginationMode();
+    if (mode != null && mode != SourcePaginationMode.KEYSET) {
+      collector.addFailure("Watermark Path requires the Keyset pagination mode.",
+                           "Set Pagination Mode to Keyset, or clear Watermark Path to read all the records every run.")
+        .withConfigProperty(ServiceNowConstants.PROPERTY_WATERMARK_PATH)
+        .withConfigProperty(ServiceNowConstants.PROPERTY_PAGINATION_MODE);
+    }
+  }
+
+  private void validateSchemaSampleSize(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_SCHEMA_SAMPLE_SIZE) || schemaSampleSize == null) {
+      return;
+    }
+
+    if (schemaSampleSize < 1) {
+      collector.addFailure("Schema sample size must be greater than 0.", null)
+        .withConfigProperty(ServiceNowConstants.PROPERTY_SCHEMA_SAMPLE_SIZE);
+    }
+  }
+
+  private void validateMaxRequestsPerSecond(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_MAX_REQUESTS_PER_SECOND) || maxRequestsPerSecond == null) {
+      return;
+    }
+
+    if (maxRequestsPerSecond < 1) {
+      collector.addFailure("Max requests per second must be greater than 0.", null)
+        .withConfigProperty(ServiceNowConstants.PROPERTY_MAX_REQUESTS_PER_SECOND);
+    }
+  }
+
+  private void validateExpectedParallelism(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_EXPECTED_PARALLELISM) || expectedParallelism == null) {
+      return;
+    }
+
+    if (expectedParallelism < 1) {
+      collector.addFailure("Expected parallelism must be greater than 0.", null)
+        .withConfigProperty(ServiceNowConstants.PROPERTY_EXPECTED_PARALLELISM);
+    }
+  }
+
+  private void validatePagesInFlight(FailureCollector collector) {
+    if (containsMacro(ServiceNowConstants.PROPERTY_PAGES_IN_FLIGHT) || pagesInFlight == null) {
+      return;
+    }
+
+    if (pagesInFlight < 1) {
+      collector.addFailure("Pages in flight must be greater than 0.", null)
+        .withConfigProperty(ServiceNowConstants.PROPERTY_PAGES_IN_FLIGHT);
+    }
+  }
+
   /**
    * Returns true if ServiceNow can be connected to.
    */
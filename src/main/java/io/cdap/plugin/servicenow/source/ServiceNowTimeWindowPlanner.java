@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source;
+
+import io.cdap.plugin.servicenow.source.util.Util;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Plans the splits of a table as windows of the time its records were last updated.
+ * The range of update times is bisected on hour boundaries, counting the records of each half, until every window
+ * holds no more than the records of one split or is an hour wide. The windows are then packed in time order into
+ * splits of about the same number of records.
+ */
+class ServiceNowTimeWindowPlanner {
+  private final RecordCounter counter;
+  private final int recordsPerSplit;
+
+  /**
+   * Constructor for ServiceNowTimeWindowPlanner object.
+   *
+   * @param counter Counts the records updated within a window
+   * @param recordsPerSplit The number of records each split should hold
+   */
+  ServiceNowTimeWindowPlanner(RecordCounter counter, int recordsPerSplit) {
+    this.counter = counter;
+    this.recordsPerSplit = recordsPerSplit;
+  }
+
+  /**
+   * Returns the splits in ascending order of time, with the number of records each one holds. A window an hour wide
+   * may hold more records than a split should, the split holding it is then larger.
+   *
+   * @param from The earliest update time of the records
+   * @param to The time before which all the records were updated
+   * @param recordCount The number of records updated in between
+   * @throws IOException if the records of a window could not be counted
+   */
+  List<Split> plan(Instant from, Instant to, int recordCount) throws IOException {
+    List<Window> windows = new ArrayList<>();
+    collectWindows(from.truncatedTo(ChronoUnit.HOURS), to, recordCount, windows);
+
+    List<Split> splits = new ArrayList<>();
+    String lowerBound = null;
+    int splitRecords = 0;
+    for (Window window : windows) {
+      if (splitRecords > 0 && splitRecords + window.recordCount > recordsPerSplit) {
+        splits.add(new Split(lowerBound, splitRecords));
+        lowerBound = Util.formatDateTime(window.from);
+        splitRecords = 0;
+      }
+      splitRecords += window.recordCount;
+    }
+    splits.add(new Split(lowerBound, splitRecords));
+
+    return splits;
+  }
+
+  private void collectWindows(Instant from, Instant to, int recordCount, List<Window> windows) throws IOException {
+    Instant middle = from.plus(Duration.between(from, to).dividedBy(2)).truncatedTo(ChronoUnit.HOURS);
+    if (recordCount <= recordsPerSplit || !middle.isAfter(from) || !middle.isBefore(to)) {
+      windows.add(new Window(from, recordCount));
+      return;
+    }
+
+    Integer firstHalf = counter.count(from, middle);
+    if (firstHalf == null) {
+      throw new IllegalStateException(String.format("Unable to count the records updated between %s and %s",
+                                                    Util.formatDateTime(from), Util.formatDateTime(middle)));
+    }
+
+    // Both halves are read from the same snapshot, the second one holds whatever the first one does not
+    collectWindows(from, middle, firstHalf, windows);
+    collectWindows(middle, to, Math.max(0, recordCount - firstHalf), windows);
+  }
+
+  /**
+   * Counts the records of a table that were last updated within a window of time.
+   */
+  interface RecordCounter {
+
+    /**
+     * Returns the number of records updated from `from` (inclusive) until `to` (exclusive), null if they could not
+     * be counted.
+     */
+    @Nullable
+    Integer count(Instant from, Instant to) throws IOException;
+  }
+
+  /**
+   * A split of the table, reading the records updated from its lower bound up to the lower bound of the next split.
+   */
+  static final class Split {
+    private final String lowerBound;
+    private final int recordCount;
+
+    Split(@Nullable String lowerBound, int recordCount) {
+      this.lowerBound = lowerBound;
+      this.recordCount = recordCount;
+    }
+
+    /**
+     * Returns the GMT date time from which the split reads, null for the first split.
+     */
+    @Nullable
+    String getLowerBound() {
+      return lowerBound;
+    }
+
+    int getRecordCount() {
+      return recordCount;
+    }
+  }
+
+  /**
+   * A window of update times, from its start up to the start of the next window.
+   */
+  private static final class Window {
+    private final Instant from;
+    private final int recordCount;
+
+    private Window(Instant from, int recordCount) {
+      this.from = from;
+      this.recordCount = recordCount;
+    }
+  }
+}
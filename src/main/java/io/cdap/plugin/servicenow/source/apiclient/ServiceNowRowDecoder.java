@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.apiclient;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Decodes a single row of a ServiceNow Table API response.
+ *
+ * @param <T> The type of the decoded row
+ */
+public interface ServiceNowRowDecoder<T> {
+
+  /**
+   * Reads one JSON object representing a table row from the reader.
+   *
+   * @param reader The reader positioned at the beginning of the row object
+   * @return The decoded row
+   * @throws IOException if the row could not be read
+   */
+  T decode(JsonReader reader) throws IOException;
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.apiclient;
+
+import com.google.common.base.Joiner;
+import io.cdap.plugin.servicenow.restapi.RestAPIRequest;
+
+import java.net.URLEncoder;
+import java.util.Arrays;
+
+/**
+ * ServiceNowStatsAPIRequestBuilder, builds requests to the Aggregate (Stats) API of ServiceNow.
+ */
+public class ServiceNowStatsAPIRequestBuilder extends RestAPIRequest.Builder {
+  private static final String STATS_API_URL_TEMPLATE = "%s/api/now/stats/%s";
+
+  public ServiceNowStatsAPIRequestBuilder(String instanceBaseUrl, String tableName) {
+    super(String.format(STATS_API_URL_TEMPLATE, instanceBaseUrl, tableName));
+  }
+
+  /**
+   * Sets the filter query for ServiceNow Rest API request.
+   *
+   * @param query the filter query for ServiceNow Rest API request.
+   * @return
+   */
+  public ServiceNowStatsAPIRequestBuilder setQuery(String query) {
+    try {
+      this.parameters.put("sysparm_query", URLEncoder.encode(query, "UTF-8"));
+    } catch (Exception e) {
+    }
+    return this;
+  }
+
+  public ServiceNowStatsAPIRequestBuilder setCount(boolean count) {
+    this.parameters.put("sysparm_count", String.valueOf(count));
+    return this;
+  }
+
+  /**
+   * Sets the list of fields for which the minimum value is to be returned.
+   *
+   * @param fields The list of fields for which the minimum value is to be returned
+   * @return
+   */
+  public ServiceNowStatsAPIRequestBuilder setMinFields(String... fields) {
+    if (fields == null || fields.length == 0) {
+      return this;
+    }
+    try {
+      this.parameters.put("sysparm_min_fields",
+                          URLEncoder.encode(Joiner.on(',').join(Arrays.asList(fields)), "UTF-8"));
+    } catch (Exception e) {
+    }
+    return this;
+  }
+
+  /**
+   * Sets the list of fields for which the maximum value is to be returned.
+   *
+   * @param fields The list of fields for which the maximum value is to be returned
+   * @return
+   */
+  public ServiceNowStatsAPIRequestBuilder setMaxFields(String... fields) {
+    if (fields == null || fields.length == 0) {
+      return this;
+    }
+    try {
+      this.parameters.put("sysparm_max_fields",
+                          URLEncoder.encode(Joiner.on(',').join(Arrays.asList(fields)), "UTF-8"));
+    } catch (Exception e) {
+    }
+    return this;
+  }
+}
@@ -16,26 +16,50 @@
 
 package io.cdap.plugin.servicenow.source.apiclient;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import io.cdap.plugin.servicenow.restapi.RestAPIClient;
 import io.cdap.plugin.servicenow.restapi.RestAPIResponse;
+import io.cdap.plugin.servicenow.restapi.RestAPIStreamingResponse;
 import io.cdap.plugin.servicenow.source.ServiceNowSourceConfig;
+import io.cdap.plugin.servicenow.source.util.SchemaInferrer;
 import io.cdap.plugin.servicenow.source.util.ServiceNowColumn;
+import io.cdap.plugin.servicenow.source.util.ServiceNowConstants;
+import io.cdap.plugin.servicenow.source.util.ServiceNowSchemaCache;
+import io.cdap.plugin.servicenow.source.util.SourcePaginationMode;
+import io.cdap.plugin.servicenow.source.util.SourceValueType;
 import io.cdap.plugin.servicenow.source.util.Util;
 import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
 import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Implementation class for ServiceNow Table API.
@@ -44,61 +68,431 @@ public class ServiceNowTableAPIClientImpl extends RestAPIClient {
   private static final Logger LOG = LoggerFactory.getLogger(ServiceNowTableAPIClientImpl.class);
   private static final String DATE_RANGE_TEMPLATE = "%sBETWEENjavascript:gs.dateGenerate('%s','start')" +
     "@javascript:gs.dateGenerate('%s','end')";
+  private static final String DATE_TIME_RANGE_TEMPLATE = "%sBETWEEN%s@%s";
   private static final String FIELD_CREATED_ON = "sys_created_on";
-  private static final String FIELD_UPDATED_ON = "sys_updated_on";
+  private static final String FIELD_UPDATED_ON = ServiceNowConstants.SYS_UPDATED_ON_FIELD;
+  private static final String HEADER_NAME_DATE = "Date";
   private static final String HEADER_NAME_TOTAL_COUNT = "X-Total-Count";
   private static final String OAUTH_URL_TEMPLATE = "%s/oauth_token.do";
+  private static final String ORDER_BY_SYS_ID = "ORDERBY" + ServiceNowConstants.SYS_ID_FIELD;
+  private static final String TABLE_DB_OBJECT = "sys_db_object";
+  private static final String TABLE_DICTIONARY = "sys_dictionary";
+  private static final String FIELD_NAME = "name";
+  private static final String FIELD_SUPER_CLASS_NAME = "super_class.name";
+  private static final int MAX_TABLE_HIERARCHY_DEPTH = 16;
+  private static final int MAX_DICTIONARY_ENTRIES = 10000;
+  private static final int MAX_SAMPLE_REQUESTS = 8;
 
   private ServiceNowSourceConfig conf;
+  private String snapshotTime;
+  private String updatedAfter;
 
   public ServiceNowTableAPIClientImpl(ServiceNowSourceConfig conf) {
+    this(conf, null);
+  }
+
+  /**
+   * Constructor for a client whose table queries only see the records as they were at the given time.
+   *
+   * @param conf The plugin configuration
+   * @param snapshotTime The GMT date time, in 'yyyy-MM-dd HH:mm:ss' format, after which updated records are
+   *                     left out of every table query; null to read the tables as they are
+   */
+  public ServiceNowTableAPIClientImpl(ServiceNowSourceConfig conf, @Nullable String snapshotTime) {
+    this(conf, snapshotTime, null);
+  }
+
+  /**
+   * Constructor for a client whose table queries only see the records updated within a window of time.
+   *
+   * @param conf The plugin configuration
+   * @param snapshotTime The GMT date time, in 'yyyy-MM-dd HH:mm:ss' format, after which updated records are
+   *                     left out of every table query; null to read the tables as they are
+   * @param updatedAfter The GMT date time, in 'yyyy-MM-dd HH:mm:ss' format, up to which updated records are left
+   *                     out of every table query; null to read all the records
+   */
+  public ServiceNowTableAPIClientImpl(ServiceNowSourceConfig conf, @Nullable String snapshotTime,
+                                      @Nullable String updatedAfter) {
+    super(conf.getMaxConnectionsPerRoute());
     this.conf = conf;
+    this.snapshotTime = snapshotTime;
+    this.updatedAfter = updatedAfter;
   }
 
+  @Override
   public String getAccessToken() throws OAuthSystemException, OAuthProblemException {
     return generateAccessToken(String.format(OAUTH_URL_TEMPLATE, conf.getRestApiEndpoint()), conf.getClientId(),
       conf.getClientSecret(), conf.getUser(), conf.getPassword());
   }
 
   /**
-   * Fetch the list of records from ServiceNow table.
+   * Fetch the records from ServiceNow table. The rows are decoded one at a time while the response is being
+   * downloaded, hence the returned stream must be closed by the caller.
+   *
+   * @param tableName The ServiceNow table name
+   * @param startDate The start date
+   * @param endDate The end date
+   * @param offset The number of records to skip
+   * @param limit The number of records to be fetched
+   * @param decoder The decoder that converts each table row
+   * @param <T> The type of the decoded rows
+   * @return The stream of decoded rows
+   * @throws IOException if the page could not be read
+   */
+  public <T> ServiceNowTableRecordStream<T> fetchTableRecords(String tableName, String startDate, String endDate,
+                                                              int offset, int limit, ServiceNowRowDecoder<T> decoder)
+    throws IOException {
+    return streamTableRecords(buildTableRecordsRequest(tableName, startDate, endDate, offset, limit), decoder);
+  }
+
+  /**
+   * Sends the request for a page of records of ServiceNow table without waiting for its response, see
+   * {@link #fetchTableRecords(String, String, String, int, int, ServiceNowRowDecoder)}.
    *
    * @param tableName The ServiceNow table name
    * @param startDate The start date
    * @param endDate The end date
    * @param offset The number of records to skip
    * @param limit The number of records to be fetched
-   * @return The list of Map; each Map representing a table row
+   * @param decoder The decoder that converts each table row
+   * @param <T> The type of the decoded rows
+   * @return The pending page, which must either be opened and closed or cancelled
+   * @throws IOException if the request could not be sent
    */
-  public List<Map<String, Object>> fetchTableRecords(String tableName, String startDate, String endDate, int offset,
-                                                     int limit) {
+  public <T> ServiceNowTableRecordFuture<T> requestTableRecords(String tableName, String startDate, String endDate,
+                                                                int offset, int limit,
+                                                                ServiceNowRowDecoder<T> decoder) throws IOException {
+    return requestTableRecords(buildTableRecordsRequest(tableName, startDate, endDate, offset, limit), decoder);
+  }
+
+  private ServiceNowTableAPIRequestBuilder buildTableRecordsRequest(String tableName, String startDate,
+                                                                    String endDate, int offset, int limit) {
     ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
       this.conf.getRestApiEndpoint(), tableName)
       .setExcludeReferenceLink(true)
       .setDisplayValue(conf.getValueType())
+      .setFields(getProjection())
       .setLimit(limit);
 
     if (offset > 0) {
       requestBuilder.setOffset(offset);
     }
 
-    applyDateRangeToRequest(requestBuilder, startDate, endDate);
+    // A stable order is required for consecutive offsets to line up, which they only do as long as no record
+    // of the range is updated or deleted in between
+    applyQueryToRequest(requestBuilder, startDate, endDate, ORDER_BY_SYS_ID);
+    return requestBuilder;
+  }
 
-    RestAPIResponse apiResponse = null;
+  /**
+   * Fetch a page of records from ServiceNow table in sys_id order, starting after (or at) the given sys_id.
+   * Unlike offset based paging, the cost of the page does not depend on how deep into the table it is.
+   * The rows are decoded one at a time while the response is being downloaded, hence the returned stream must be
+   * closed by the caller.
+   *
+   * @param tableName The ServiceNow table name
+   * @param startDate The start date
+   * @param endDate The end date
+   * @param lowerSysId The sys_id the page starts from, null to start from the beginning of the table
+   * @param includeLower A flag that decides whether the record with the lower sys_id is part of the page
+   * @param upperSysId The sys_id before which the page stops, null to read until the end of the table
+   * @param limit The number of records to be fetched
+   * @param decoder The decoder that converts each table row
+   * @param <T> The type of the decoded rows
+   * @return The stream of decoded rows
+   * @throws IOException if the page could not be read
+   */
+  public <T> ServiceNowTableRecordStream<T> fetchTableRecordsBySysId(String tableName, String startDate,
+                                                                     String endDate, @Nullable String lowerSysId,
+                                                                     boolean includeLower, @Nullable String upperSysId,
+                                                                     int limit, ServiceNowRowDecoder<T> decoder)
+    throws IOException {
+    ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), tableName)
+      .setExcludeReferenceLink(true)
+      .setDisplayValue(conf.getValueType())
+      .setFields(getProjection())
+      .setLimit(limit);
+
+    List<String> terms = new ArrayList<>();
+    if (lowerSysId != null) {
+      terms.add(ServiceNowConstants.SYS_ID_FIELD + (includeLower ? ">=" : ">") + lowerSysId);
+    }
+    if (upperSysId != null) {
+      terms.add(ServiceNowConstants.SYS_ID_FIELD + "<" + upperSysId);
+    }
+    terms.add(ORDER_BY_SYS_ID);
+
+    applyQueryToRequest(requestBuilder, startDate, endDate, terms.toArray(new String[0]));
+
+    return streamTableRecords(requestBuilder, decoder);
+  }
+
+  /**
+   * Returns the sys_id of the record found at the given position of the table in sys_id order.
+   *
+   * @param tableName The ServiceNow table name
+   * @param startDate The start date
+   * @param endDate The end date
+   * @param offset The position of the record in sys_id order
+   * @return The sys_id, null if the table has fewer records or the request was rejected
+   * @throws IOException if the request was still failing once its retries were spent
+   */
+  @Nullable
+  public String fetchSysIdAt(String tableName, String startDate, String endDate, int offset) throws IOException {
+    ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), tableName)
+      .setExcludeReferenceLink(true)
+      .setFields(ServiceNowConstants.SYS_ID_FIELD)
+      .setOffset(offset)
+      .setLimit(1);
+    applyQueryToRequest(requestBuilder, startDate, endDate, ORDER_BY_SYS_ID);
 
     try {
-      String accessToken = getAccessToken();
-      requestBuilder.setAuthHeader(accessToken);
-      apiResponse = executeGet(requestBuilder.build());
+      requestBuilder.setAuthHeader(getAccessToken());
+      RestAPIResponse apiResponse = executeGet(requestBuilder.build());
       if (!apiResponse.isSuccess()) {
         LOG.error("Error - {}", getErrorMessage(apiResponse.getResponseBody()));
-        return Collections.emptyList();
+        return null;
       }
 
-      return parseResponseToResultListOfMap(apiResponse.getResponseBody());
+      List<Map<String, Object>> result = parseResponseToResultListOfMap(apiResponse.getResponseBody());
+      if (result == null || result.isEmpty()) {
+        return null;
+      }
+
+      Object sysId = result.get(0).get(ServiceNowConstants.SYS_ID_FIELD);
+      return sysId == null ? null : String.valueOf(sysId);
+    } catch (OAuthSystemException | OAuthProblemException e) {
+      LOG.error("Error in fetchSysIdAt", e);
+      return null;
+    }
+  }
+
+  /**
+   * Fetch a page of the records of ServiceNow table that were last updated within the given range of time.
+   * The range keeps the offset of the page shallow however large the table is. The rows are decoded one at a time
+   * while the response is being downloaded, hence the returned stream must be closed by the caller.
+   *
+   * @param tableName The ServiceNow table name
+   * @param startDate The start date
+   * @param endDate The end date
+   * @param updatedFrom The GMT date time from which (inclusive) the records were updated, null for no lower bound
+   * @param updatedTo The GMT date time before which (exclusive) the records were updated, null for no upper bound
+   * @param offset The number of records of the range to skip
+   * @param limit The number of records to be fetched
+   * @param decoder The decoder that converts each table row
+   * @param <T> The type of the decoded rows
+   * @return The stream of decoded rows
+   * @throws IOException if the page could not be read
+   */
+  public <T> ServiceNowTableRecordStream<T> fetchTableRecordsByUpdatedOn(String tableName, String startDate,
+                                                                         String endDate, @Nullable String updatedFrom,
+                                                                         @Nullable String updatedTo, int offset,
+                                                                         int limit, ServiceNowRowDecoder<T> decoder)
+    throws IOException {
+    return streamTableRecords(buildTableRecordsByUpdatedOnRequest(tableName, startDate, endDate, updatedFrom,
+                                                                  updatedTo, offset, limit), decoder);
+  }
+
+  /**
+   * Sends the request for a page of the records of ServiceNow table that were last updated within the given range
+   * of time without waiting for its response, see
+   * {@link #fetchTableRecordsByUpdatedOn(String, String, String, String, String, int, int, ServiceNowRowDecoder)}.
+   *
+   * @param tableName The ServiceNow table name
+   * @param startDate The start date
+   * @param endDate The end date
+   * @param updatedFrom The GMT date time from which (inclusive) the records were updated, null for no lower bound
+   * @param updatedTo The GMT date time before which (exclusive) the records were updated, null for no upper bound
+   * @param offset The number of records of the range to skip
+   * @param limit The number of records to be fetched
+   * @param decoder The decoder that converts each table row
+   * @param <T> The type of the decoded rows
+   * @return The pending page, which must either be opened and closed or cancelled
+   * @throws IOException if the request could not be sent
+   */
+  public <T> ServiceNowTableRecordFuture<T> requestTableRecordsByUpdatedOn(String tableName, String startDate,
+                                                                           String endDate,
+                                                                           @Nullable String updatedFrom,
+                                                                           @Nullable String updatedTo, int offset,
+                                                                           int limit, ServiceNowRowDecoder<T> decoder)
+    throws IOException {
+    return requestTableRecords(buildTableRecordsByUpdatedOnRequest(tableName, startDate, endDate, updatedFrom,
+                                                                   updatedTo, offset, limit), decoder);
+  }
+
+  private ServiceNowTableAPIRequestBuilder buildTableRecordsByUpdatedOnRequest(String tableName, String startDate,
+                                                                               String endDate,
+                                                                               @Nullable String updatedFrom,
+                                                                               @Nullable String updatedTo,
+                                                                               int offset, int limit) {
+    ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), tableName)
+      .setExcludeReferenceLink(true)
+      .setDisplayValue(conf.getValueType())
+      .setFields(getProjection())
+      .setLimit(limit);
+
+    if (offset > 0) {
+      requestBuilder.setOffset(offset);
+    }
+
+    List<String> terms = generateUpdatedOnRangeTerms(updatedFrom, updatedTo);
+    terms.add(ORDER_BY_SYS_ID);
+    applyQueryToRequest(requestBuilder, startDate, endDate, terms.toArray(new String[0]));
+    return requestBuilder;
+  }
+
+  /**
+   * Counts the records of ServiceNow table with the Aggregate API, optionally only those last updated within the
+   * given range of time.
+   *
+   * @param tableName The ServiceNow table name
+   * @param startDate The start date
+   * @param endDate The end date
+   * @param updatedFrom The GMT date time from which (inclusive) the records were updated, null for no lower bound
+   * @param updatedTo The GMT date time before which (exclusive) the records were updated, null for no upper bound
+   * @return The record count, null if the request was rejected
+   * @throws IOException if the request was still failing once its retries were spent
+   */
+  @Nullable
+  public Integer fetchRecordCount(String tableName, String startDate, String endDate, @Nullable String updatedFrom,
+                                  @Nullable String updatedTo) throws IOException {
+    List<String> terms = generateUpdatedOnRangeTerms(updatedFrom, updatedTo);
+    ServiceNowStatsAPIRequestBuilder requestBuilder = new ServiceNowStatsAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), tableName)
+      .setQuery(buildQuery(startDate, endDate, terms.toArray(new String[0])))
+      .setCount(true);
+
+    JsonObject stats = fetchStats(requestBuilder);
+    if (stats == null || !stats.has("count")) {
+      return null;
+    }
+
+    return stats.get("count").getAsInt();
+  }
+
+  /**
+   * Returns the earliest time at which a record of ServiceNow table was last updated.
+   *
+   * @param tableName The ServiceNow table name
+   * @param startDate The start date
+   * @param endDate The end date
+   * @return The GMT date time, null if the table is empty or the request was rejected
+   * @throws IOException if the request was still failing once its retries were spent
+   */
+  @Nullable
+  public String fetchMinUpdatedOn(String tableName, String startDate, String endDate) throws IOException {
+    ServiceNowStatsAPIRequestBuilder requestBuilder = new ServiceNowStatsAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), tableName)
+      .setQuery(buildQuery(startDate, endDate))
+      .setMinFields(FIELD_UPDATED_ON);
+
+    JsonObject stats = fetchStats(requestBuilder);
+    if (stats == null || !stats.has("min")) {
+      return null;
+    }
+
+    JsonObject min = stats.getAsJsonObject("min");
+    if (!min.has(FIELD_UPDATED_ON) || min.get(FIELD_UPDATED_ON).isJsonNull()) {
+      return null;
+    }
+
+    return Strings.emptyToNull(min.get(FIELD_UPDATED_ON).getAsString());
+  }
+
+  @Nullable
+  private JsonObject fetchStats(ServiceNowStatsAPIRequestBuilder requestBuilder) throws IOException {
+    try {
+      requestBuilder.setAuthHeader(getAccessToken());
+      RestAPIResponse apiResponse = executeGet(requestBuilder.build());
+      if (!apiResponse.isSuccess()) {
+        LOG.error("Error - {}", getErrorMessage(apiResponse.getResponseBody()));
+        return null;
+      }
+
+      Gson gson = new Gson();
+      JsonObject jo = gson.fromJson(apiResponse.getResponseBody(), JsonObject.class);
+      return jo.getAsJsonObject("result").getAsJsonObject("stats");
+    } catch (OAuthSystemException | OAuthProblemException e) {
+      LOG.error("Error in fetchStats", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the current time of the ServiceNow instance, as reported by the Date header of a minimal request to the
+   * given table.
+   *
+   * @param tableName The ServiceNow table name
+   * @return The instance time, null if the instance rejected the request or did not report it
+   * @throws IOException if the request was still failing once its retries were spent
+   */
+  @Nullable
+  public Instant fetchInstanceTime(String tableName) throws IOException {
+    ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), tableName)
+      .setFields(ServiceNowConstants.SYS_ID_FIELD)
+      .setLimit(1);
+    requestBuilder.setResponseHeaders(HEADER_NAME_DATE);
+
+    try {
+      requestBuilder.setAuthHeader(getAccessToken());
+      RestAPIResponse apiResponse = executeGet(requestBuilder.build());
+      String date = apiResponse.getHeaders().get(HEADER_NAME_DATE);
+      if (!apiResponse.isSuccess() || Strings.isNullOrEmpty(date)) {
+        return null;
+      }
+
+      return Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(date));
+    } catch (OAuthSystemException | OAuthProblemException | DateTimeParseException e) {
+      LOG.warn("Unable to fetch the time of the ServiceNow instance", e);
+      return null;
+    }
+  }
+
+  private <T> ServiceNowTableRecordStream<T> streamTableRecords(ServiceNowTableAPIRequestBuilder requestBuilder,
+                                                                ServiceNowRowDecoder<T> decoder) throws IOException {
+    setAuthHeader(requestBuilder);
+    return openTableRecords(executeGetStreaming(requestBuilder.build()), decoder);
+  }
+
+  private <T> ServiceNowTableRecordFuture<T> requestTableRecords(ServiceNowTableAPIRequestBuilder requestBuilder,
+                                                                 ServiceNowRowDecoder<T> decoder) throws IOException {
+    setAuthHeader(requestBuilder);
+    return new ServiceNowTableRecordFuture<>(this, executeGetAsync(requestBuilder.build()), decoder);
+  }
+
+  private void setAuthHeader(ServiceNowTableAPIRequestBuilder requestBuilder) throws IOException {
+    try {
+      requestBuilder.setAuthHeader(getAccessToken());
     } catch (OAuthSystemException | OAuthProblemException e) {
-      LOG.error("Error in fetchTableRecords", e);
-      return Collections.emptyList();
+      throw new IOException("Unable to get an access token", e);
+    }
+  }
+
+  /**
+   * Returns the stream of decoded rows of a page response, closing the response if it failed.
+   */
+  <T> ServiceNowTableRecordStream<T> openTableRecords(RestAPIStreamingResponse apiResponse,
+                                                      ServiceNowRowDecoder<T> decoder) throws IOException {
+    // An unreadable page fails the read, an empty page would silently end the split short
+    if (!apiResponse.isSuccess()) {
+      try {
+        throw new IOException(String.format("Unable to read a page of records, HTTP status %d: %s",
+                                            apiResponse.getHttpStatus(),
+                                            getErrorMessage(apiResponse.getResponseBody())));
+      } finally {
+        closeQuietly(apiResponse);
+      }
+    }
+
+    try {
+      return new ServiceNowTableRecordStream<>(apiResponse, decoder);
+    } catch (IOException e) {
+      closeQuietly(apiResponse);
+      throw e;
     }
   }
 
@@ -110,20 +504,298 @@ public class ServiceNowTableAPIClientImpl extends RestAPIClient {
    * @param endDate The end date
    * @param fetchRecordCount A flag that decides whether to fetch total record count or not
    * @return
+   * @throws IOException if the request was still failing once its retries were spent
    */
   public ServiceNowTableDataResponse fetchTableSchema(String tableName, String startDate, String endDate,
-                                                      boolean fetchRecordCount) {
+                                                      boolean fetchRecordCount) throws IOException {
+    // Display values are formatted for the user, whatever the type of the column, hence they are read as strings
+    if (conf.getValueType() == SourceValueType.SHOW_ACTUAL_VALUE) {
+      List<ServiceNowColumn> columns = fetchTableSchemaUsingDictionary(tableName);
+      if (columns != null) {
+        ServiceNowTableDataResponse tableDataResponse = new ServiceNowTableDataResponse();
+        tableDataResponse.setColumns(columns);
+        if (fetchRecordCount) {
+          Integer recordCount = fetchRecordCount(tableName, startDate, endDate, null, null);
+          if (recordCount == null) {
+            return null;
+          }
+          tableDataResponse.setTotalRecordCount(recordCount);
+        }
+
+        return tableDataResponse;
+      }
+    }
+
+    if (conf.getSchemaSampleSize() > 1) {
+      return fetchTableSchemaUsingSample(tableName, startDate, endDate);
+    }
+
     return fetchTableSchemaUsingFirstRecord(tableName, startDate, endDate, fetchRecordCount);
   }
 
+  /**
+   * Infers the columns of the table from a sample of its records, read in parallel from pages spread evenly across
+   * the records within the date range. Columns that are empty in the first record but not in the others are kept,
+   * and actual values are typed from what was sampled.
+   */
+  @Nullable
+  private ServiceNowTableDataResponse fetchTableSchemaUsingSample(String tableName, String startDate,
+                                                                  String endDate) throws IOException {
+    Integer recordCount = fetchRecordCount(tableName, startDate, endDate, null, null);
+    if (recordCount == null) {
+      return null;
+    }
+
+    int sampleSize = Math.min(conf.getSchemaSampleSize(), recordCount);
+    int requestCount = Math.max(1, Math.min(sampleSize, Math.min(MAX_SAMPLE_REQUESTS,
+                                                                  conf.getMaxConnectionsPerRoute())));
+    int pageSize = (sampleSize + requestCount - 1) / requestCount;
+    int lastOffset = Math.max(0, recordCount - pageSize);
+
+    List<Map<String, Object>> records = new ArrayList<>();
+    if (sampleSize > 0) {
+      ExecutorService executor = Executors.newFixedThreadPool(requestCount, new ThreadFactoryBuilder()
+        .setNameFormat("servicenow-schema-sample-%d")
+        .setDaemon(true)
+        .build());
+      try {
+        List<Future<List<Map<String, Object>>>> futures = new ArrayList<>();
+        for (int i = 0; i < requestCount; i++) {
+          int offset = requestCount == 1 ? 0 : (int) ((long) lastOffset * i / (requestCount - 1));
+          futures.add(executor.submit(() -> fetchSamplePage(tableName, startDate, endDate, offset, pageSize)));
+        }
+
+        for (Future<List<Map<String, Object>>> future : futures) {
+          List<Map<String, Object>> page = future.get();
+          if (page == null) {
+            return null;
+          }
+          records.addAll(page);
+        }
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        LOG.error("Error in fetchTableSchemaUsingSample", e.getCause());
+        return null;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while sampling table " + tableName, e);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    // Display values are formatted for the user, whatever the type of the column, hence they are read as strings
+    boolean inferTypes = conf.getValueType() == SourceValueType.SHOW_ACTUAL_VALUE;
+    ServiceNowTableDataResponse tableDataResponse = new ServiceNowTableDataResponse();
+    tableDataResponse.setColumns(new SchemaInferrer().inferColumns(records, inferTypes));
+    tableDataResponse.setTotalRecordCount(recordCount);
+    LOG.debug("Inferred {} columns of table {} from {} records", tableDataResponse.getColumns().size(), tableName,
+              records.size());
+
+    return tableDataResponse;
+  }
+
+  @Nullable
+  private List<Map<String, Object>> fetchSamplePage(String tableName, String startDate, String endDate, int offset,
+                                                    int limit) throws IOException {
+    ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), tableName)
+      .setExcludeReferenceLink(true)
+      .setDisplayValue(conf.getValueType())
+      .setFields(getProjection())
+      .setLimit(limit);
+
+    if (offset > 0) {
+      requestBuilder.setOffset(offset);
+    }
+
+    applyQueryToRequest(requestBuilder, startDate, endDate, ORDER_BY_SYS_ID);
+
+    return fetchResult(requestBuilder);
+  }
+
+  /**
+   * Returns the typed columns of the table, inherited ones included, as defined in the dictionary of the instance.
+   * The columns are cached on local disk and reused for as long as the dictionary entries are unchanged.
+   *
+   * @param tableName The ServiceNow table name
+   * @return The columns, null if the dictionary cannot be read
+   */
+  @Nullable
+  private List<ServiceNowColumn> fetchTableSchemaUsingDictionary(String tableName) throws IOException {
+    ServiceNowSchemaCache schemaCache = ServiceNowSchemaCache.forInstance(conf.getRestApiEndpoint());
+    ServiceNowSchemaCache.Entry cached = schemaCache.get(tableName);
+    if (cached != null && cached.getVersion().equals(fetchDictionaryVersion(cached.getTables()))) {
+      return project(cached.getColumns());
+    }
+
+    List<String> tables = fetchTableHierarchy(tableName);
+    if (tables == null) {
+      return null;
+    }
+
+    // The version is read first, so that a change made in between is picked up on the next run
+    String version = fetchDictionaryVersion(tables);
+    List<ServiceNowColumn> columns = fetchDictionaryColumns(tables);
+    if (columns == null || columns.isEmpty()) {
+      return null;
+    }
+
+    if (version != null) {
+      schemaCache.put(tableName, new ServiceNowSchemaCache.Entry(tables, version, columns));
+    }
+
+    return project(columns);
+  }
+
+  /**
+   * Returns the columns to be requested, empty when all the columns are to be read.
+   */
+  private String[] getProjection() {
+    List<String> fields = new ArrayList<>(conf.getFields());
+    // Keyset pagination resumes from the sys_id of the last record read
+    if (!fields.isEmpty() && conf.getPaginationMode() == SourcePaginationMode.KEYSET &&
+      !fields.contains(ServiceNowConstants.SYS_ID_FIELD)) {
+      fields.add(ServiceNowConstants.SYS_ID_FIELD);
+    }
+    return fields.toArray(new String[0]);
+  }
+
+  private List<ServiceNowColumn> project(List<ServiceNowColumn> columns) {
+    List<String> projection = Arrays.asList(getProjection());
+    if (projection.isEmpty()) {
+      return columns;
+    }
+
+    return columns.stream()
+      .filter(column -> projection.contains(column.getFieldName()))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the table followed by the tables it extends, up to the base table.
+   */
+  @Nullable
+  private List<String> fetchTableHierarchy(String tableName) throws IOException {
+    List<String> tables = new ArrayList<>();
+    String current = tableName;
+    while (!Strings.isNullOrEmpty(current) && tables.size() < MAX_TABLE_HIERARCHY_DEPTH) {
+      tables.add(current);
+      ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
+        this.conf.getRestApiEndpoint(), TABLE_DB_OBJECT)
+        .setExcludeReferenceLink(true)
+        .setQuery(FIELD_NAME + "=" + current)
+        .setFields(FIELD_NAME, FIELD_SUPER_CLASS_NAME)
+        .setLimit(1);
+
+      List<Map<String, Object>> result = fetchResult(requestBuilder);
+      if (result == null || result.isEmpty()) {
+        return null;
+      }
+
+      Object superClass = result.get(0).get(FIELD_SUPER_CLASS_NAME);
+      current = superClass == null ? null : String.valueOf(superClass);
+    }
+
+    return tables;
+  }
+
+  /**
+   * Returns the columns defined for the tables, a column defined by several tables is taken from the first one.
+   */
+  @Nullable
+  private List<ServiceNowColumn> fetchDictionaryColumns(List<String> tables) throws IOException {
+    ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), TABLE_DICTIONARY)
+      .setExcludeReferenceLink(true)
+      .setQuery(String.format("%sIN%s^elementISNOTEMPTY^ORDERBYelement", FIELD_NAME, Joiner.on(',').join(tables)))
+      .setFields(FIELD_NAME, "element", "internal_type", "mandatory", "max_length", "scale")
+      .setLimit(MAX_DICTIONARY_ENTRIES);
+
+    try {
+      requestBuilder.setAuthHeader(getAccessToken());
+      RestAPIResponse apiResponse = executeGet(requestBuilder.build());
+      if (!apiResponse.isSuccess()) {
+        LOG.warn("Unable to read the dictionary of tables {}: {}", tables,
+                 getErrorMessage(apiResponse.getResponseBody()));
+        return null;
+      }
+
+      Gson gson = new Gson();
+      JsonArray entries = gson.fromJson(apiResponse.getResponseBody(), JsonObject.class).getAsJsonArray("result");
+      List<ServiceNowColumn> columns = new ArrayList<>();
+      Set<String> fieldNames = new HashSet<>();
+      for (String table : tables) {
+        for (JsonElement entry : entries) {
+          JsonObject entryObject = entry.getAsJsonObject();
+          if (!table.equals(entryObject.get(FIELD_NAME).getAsString())) {
+            continue;
+          }
+
+          ServiceNowColumn column = gson.fromJson(entryObject, ServiceNowColumn.class);
+          if (column.getTypeName() != null && fieldNames.add(column.getFieldName())) {
+            columns.add(column);
+          }
+        }
+      }
+
+      return columns;
+    } catch (OAuthSystemException | OAuthProblemException e) {
+      LOG.error("Error in fetchDictionaryColumns", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns a value that changes whenever a dictionary entry of the tables is added, updated or removed.
+   */
+  @Nullable
+  private String fetchDictionaryVersion(List<String> tables) throws IOException {
+    ServiceNowStatsAPIRequestBuilder requestBuilder = new ServiceNowStatsAPIRequestBuilder(
+      this.conf.getRestApiEndpoint(), TABLE_DICTIONARY)
+      .setQuery(String.format("%sIN%s", FIELD_NAME, Joiner.on(',').join(tables)))
+      .setCount(true)
+      .setMaxFields(FIELD_UPDATED_ON);
+
+    JsonObject stats = fetchStats(requestBuilder);
+    if (stats == null || !stats.has("count") || !stats.has("max")) {
+      return null;
+    }
+
+    JsonElement maxUpdatedOn = stats.getAsJsonObject("max").get(FIELD_UPDATED_ON);
+    return String.format("%s/%s", maxUpdatedOn == null || maxUpdatedOn.isJsonNull() ? "" :
+      maxUpdatedOn.getAsString(), stats.get("count").getAsString());
+  }
+
+  @Nullable
+  private List<Map<String, Object>> fetchResult(ServiceNowTableAPIRequestBuilder requestBuilder) throws IOException {
+    try {
+      requestBuilder.setAuthHeader(getAccessToken());
+      RestAPIResponse apiResponse = executeGet(requestBuilder.build());
+      if (!apiResponse.isSuccess()) {
+        LOG.warn("Error - {}", getErrorMessage(apiResponse.getResponseBody()));
+        return null;
+      }
+
+      return parseResponseToResultListOfMap(apiResponse.getResponseBody());
+    } catch (OAuthSystemException | OAuthProblemException e) {
+      LOG.error("Error in fetchResult", e);
+      return null;
+    }
+  }
+
   private ServiceNowTableDataResponse fetchTableSchemaUsingFirstRecord(String tableName, String startDate,
-                                                                       String endDate, boolean fetchRecordCount) {
+                                                                       String endDate, boolean fetchRecordCount)
+    throws IOException {
     ServiceNowTableAPIRequestBuilder requestBuilder = new ServiceNowTableAPIRequestBuilder(
       this.conf.getRestApiEndpoint(), tableName)
       .setExcludeReferenceLink(true)
       .setDisplayValue(conf.getValueType())
+      .setFields(getProjection())
       .setLimit(1);
-    applyDateRangeToRequest(requestBuilder, startDate, endDate);
+    applyQueryToRequest(requestBuilder, startDate, endDate);
 
     RestAPIResponse apiResponse = null;
 
@@ -166,12 +838,44 @@ public class ServiceNowTableAPIClientImpl extends RestAPIClient {
     }
   }
 
-  private void applyDateRangeToRequest(ServiceNowTableAPIRequestBuilder requestBuilder, String startDate,
-                                       String endDate) {
+  private void applyQueryToRequest(ServiceNowTableAPIRequestBuilder requestBuilder, String startDate,
+                                   String endDate, String... terms) {
+    String query = buildQuery(startDate, endDate, terms);
+    if (!query.isEmpty()) {
+      requestBuilder.setQuery(query);
+    }
+  }
+
+  private String buildQuery(String startDate, String endDate, String... terms) {
+    // The date range and the encoded query may hold OR'ed conditions, which bind tighter than the '^' (AND) separator
+    List<String> conditions = new ArrayList<>();
     String dateRange = generateDateRangeQuery(startDate, endDate);
     if (!Strings.isNullOrEmpty(dateRange)) {
-      requestBuilder.setQuery(dateRange);
+      conditions.add(dateRange);
+    }
+    if (conf.getEncodedQuery() != null) {
+      conditions.add(conf.getEncodedQuery());
     }
+    if (updatedAfter != null) {
+      conditions.add(FIELD_UPDATED_ON + ">" + updatedAfter);
+    }
+    if (snapshotTime != null) {
+      conditions.add(FIELD_UPDATED_ON + "<=" + snapshotTime);
+    }
+    Collections.addAll(conditions, terms);
+
+    return Joiner.on('^').join(conditions);
+  }
+
+  private List<String> generateUpdatedOnRangeTerms(@Nullable String updatedFrom, @Nullable String updatedTo) {
+    List<String> terms = new ArrayList<>();
+    if (updatedFrom != null) {
+      terms.add(FIELD_UPDATED_ON + ">=" + updatedFrom);
+    }
+    if (updatedTo != null) {
+      terms.add(FIELD_UPDATED_ON + "<" + updatedTo);
+    }
+    return terms;
   }
 
   private String generateDateRangeQuery(String startDate, String endDate) {
@@ -179,11 +883,15 @@ public class ServiceNowTableAPIClientImpl extends RestAPIClient {
       return "";
     }
 
+    if (Util.isDateTime(startDate)) {
+      return generateDateTimeRangeQuery(startDate, endDate);
+    }
+
     String dateRange = "";
     try {
-      String createdOnDateRange = String.format(DATE_RANGE_TEMPLATE, FIELD_CREATED_ON, startDate, endDate);
-      String updatedOnDateRange = String.format(DATE_RANGE_TEMPLATE, FIELD_UPDATED_ON, startDate, endDate);
-      dateRange = String.format("%s^OR%s", createdOnDateRange, updatedOnDateRange);
+      dateRange = getDateRangeFields().stream()
+        .map(field -> String.format(DATE_RANGE_TEMPLATE, field, startDate, endDate))
+        .collect(Collectors.joining("^OR"));
     } catch (Exception e) {
       LOG.error("Error in generateDateRangeQuery, hence ignoring the date range", e);
     }
@@ -191,6 +899,26 @@ public class ServiceNowTableAPIClientImpl extends RestAPIClient {
     return dateRange;
   }
 
+  private String generateDateTimeRangeQuery(String startDate, String endDate) {
+    // Date times are stored in GMT, the end is excluded so that consecutive windows do not read a record twice
+    ZoneId zone = conf.getTimeZone();
+    String from = Util.formatDateTime(Util.parseDateTime(startDate.trim(), zone));
+    String to = Util.formatDateTime(Util.parseDateTime(endDate.trim(), zone).minusSeconds(1));
+
+    return getDateRangeFields().stream()
+      .map(field -> String.format(DATE_TIME_RANGE_TEMPLATE, field, from, to))
+      .collect(Collectors.joining("^OR"));
+  }
+
+  /**
+   * Returns the columns the date range applies to. A single column can be served by its index, the records created
+   * or updated within the range are read when none is configured.
+   */
+  private List<String> getDateRangeFields() {
+    String field = conf.getDateRangeField();
+    return field == null ? Arrays.asList(FIELD_CREATED_ON, FIELD_UPDATED_ON) : Collections.singletonList(field);
+  }
+
   private int getRecordCountFromHeader(RestAPIResponse apiResponse) {
     String headerValue = apiResponse.getHeaders().get(HEADER_NAME_TOTAL_COUNT);
     return Strings.isNullOrEmpty(headerValue) ? 0 : Integer.parseInt(headerValue);
@@ -207,6 +935,18 @@ public class ServiceNowTableAPIClientImpl extends RestAPIClient {
     return gson.fromJson(ja, type);
   }
 
+  private void closeQuietly(@Nullable Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      LOG.debug("Error while closing the response", e);
+    }
+  }
+
   private String getErrorMessage(String responseBody) {
     try {
       Gson gson = new Gson();
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.apiclient;
+
+import io.cdap.plugin.servicenow.restapi.RestAPIClient;
+
+import java.io.IOException;
+
+/**
+ * A page of records of a ServiceNow table whose request was sent ahead of reading it, see
+ * {@link ServiceNowTableAPIClientImpl#requestTableRecords(String, String, String, int, int, ServiceNowRowDecoder)}.
+ *
+ * @param <T> The type of the decoded rows
+ */
+public class ServiceNowTableRecordFuture<T> {
+  private final ServiceNowTableAPIClientImpl client;
+  private final RestAPIClient.PendingResponse response;
+  private final ServiceNowRowDecoder<T> decoder;
+
+  ServiceNowTableRecordFuture(ServiceNowTableAPIClientImpl client, RestAPIClient.PendingResponse response,
+                              ServiceNowRowDecoder<T> decoder) {
+    this.client = client;
+    this.response = response;
+    this.decoder = decoder;
+  }
+
+  /**
+   * Returns true if the request is in flight, false if it is only sent once the page is opened.
+   */
+  public boolean isSent() {
+    return response.isSent();
+  }
+
+  /**
+   * Waits for the page and returns the stream of its decoded rows, which must be closed by the caller.
+   *
+   * @return The stream of decoded rows
+   * @throws IOException if the page could not be read
+   */
+  public ServiceNowTableRecordStream<T> open() throws IOException {
+    return client.openTableRecords(response.get(), decoder);
+  }
+
+  /**
+   * Abandons the page, releasing the connection of its request.
+   */
+  public void cancel() {
+    response.cancel();
+  }
+}
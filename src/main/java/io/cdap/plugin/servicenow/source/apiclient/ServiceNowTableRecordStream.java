@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.apiclient;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.cdap.plugin.servicenow.restapi.RestAPIStreamingResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * Iterates over the rows of a ServiceNow Table API response while the response body is still being downloaded.
+ * Only the row being returned is held in memory; the rest of the `result` array stays in the socket.
+ *
+ * @param <T> The type of the decoded rows
+ */
+public class ServiceNowTableRecordStream<T> implements Iterator<T>, Closeable {
+  private static final String RESULT_FIELD = "result";
+
+  private final RestAPIStreamingResponse response;
+  private final ServiceNowRowDecoder<T> decoder;
+  private final JsonReader reader;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private boolean inResult;
+
+  ServiceNowTableRecordStream(@Nullable RestAPIStreamingResponse response, ServiceNowRowDecoder<T> decoder)
+    throws IOException {
+    this.response = response;
+    this.decoder = decoder;
+    if (response == null) {
+      this.reader = null;
+      return;
+    }
+
+    this.reader = new JsonReader(new InputStreamReader(response.getContent(), StandardCharsets.UTF_8));
+    positionAtResult();
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      return inResult && reader.hasNext();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading the ServiceNow response", e);
+    }
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    try {
+      return decoder.decode(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading the ServiceNow response", e);
+    }
+  }
+
+  /**
+   * Aborts the response from another thread, so that the thread iterating over the rows stops waiting on the
+   * socket. The stream must still be closed by the thread that iterates over it.
+   *
+   * @throws IOException if the response could not be aborted
+   */
+  public void abort() throws IOException {
+    if (response != null) {
+      response.abort();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (response != null && closed.compareAndSet(false, true)) {
+      response.close();
+    }
+  }
+
+  private void positionAtResult() throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      return;
+    }
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (RESULT_FIELD.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+        reader.beginArray();
+        inResult = true;
+        return;
+      }
+      reader.skipValue();
+    }
+  }
+}
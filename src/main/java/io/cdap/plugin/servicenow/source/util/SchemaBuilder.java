@@ -27,6 +27,10 @@ import java.util.stream.Collectors;
  * Utility class to build schema.
  */
 public class SchemaBuilder {
+  // The widest decimal, used for the decimal and currency columns whose dictionary defines no length or scale
+  private static final int DECIMAL_PRECISION = 38;
+  private static final int DECIMAL_SCALE = 9;
+
   /**
    * Constructs Schema object using input parameters.
    *
@@ -67,15 +71,17 @@ public class SchemaBuilder {
   private Schema createSchema(ServiceNowColumn column) {
     switch (column.getTypeName().toLowerCase()) {
       case "decimal":
-        return Schema.of(Schema.Type.DOUBLE);
+      case "currency":
+        return createDecimalSchema(column);
+      case "glide_date":
+        return Schema.of(Schema.LogicalType.DATE);
+      case "glide_date_time":
+        return Schema.of(Schema.LogicalType.TIMESTAMP_MICROS);
       case "integer":
         return Schema.of(Schema.Type.INT);
       case "boolean":
         return Schema.of(Schema.Type.BOOLEAN);
       case "reference":
-      case "currency":
-      case "glide_date":
-      case "glide_date_time":
       case "sys_class_name":
       case "domain_id":
       case "domain_path":
@@ -87,4 +93,18 @@ public class SchemaBuilder {
         return Schema.of(Schema.Type.STRING);
     }
   }
+
+  /**
+   * Returns the decimal type of the precision and scale defined in the dictionary. The maximum length is taken as the
+   * number of integer digits, so that the type is wide enough whether or not the instance counts the decimal places
+   * in it.
+   */
+  private static Schema createDecimalSchema(ServiceNowColumn column) {
+    Integer maxLength = column.getMaxLength();
+    Integer scale = column.getScale();
+    if (maxLength == null || scale == null || maxLength < 1 || scale < 0 || scale > DECIMAL_PRECISION) {
+      return Schema.decimalOf(DECIMAL_PRECISION, DECIMAL_SCALE);
+    }
+    return Schema.decimalOf(Math.min(DECIMAL_PRECISION, maxLength + scale), scale);
+  }
 }
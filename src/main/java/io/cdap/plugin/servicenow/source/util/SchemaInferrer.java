@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Infers the columns of a table from a sample of its records, for tables whose dictionary cannot be read.
+ * Every key seen in any record becomes a column. A column is typed only when all of its sampled values, empty ones
+ * aside, are integers, decimals or booleans in the exact layout ServiceNow uses for actual values, it is a string
+ * otherwise.
+ */
+public class SchemaInferrer {
+  // No leading zeros, so that codes such as '0042' stay strings
+  private static final Pattern INTEGER_VALUE = Pattern.compile("-?(0|[1-9][0-9]{0,8})");
+  // At most 29 integer digits and 9 decimal places, the bounds of the decimal type the column is mapped to
+  private static final Pattern DECIMAL_VALUE = Pattern.compile("-?(0|[1-9][0-9]{0,28})(\\.[0-9]{1,9})?");
+  private static final Pattern BOOLEAN_VALUE = Pattern.compile("true|false");
+
+  /**
+   * Returns the columns of the sampled records, in the order their keys were first seen.
+   *
+   * @param records The sampled records
+   * @param inferTypes Whether the types are to be inferred from the values, all the columns are strings otherwise
+   * @return The list of columns
+   */
+  public List<ServiceNowColumn> inferColumns(List<Map<String, Object>> records, boolean inferTypes) {
+    Map<String, ColumnType> types = new LinkedHashMap<>();
+    for (Map<String, Object> record : records) {
+      for (Map.Entry<String, Object> entry : record.entrySet()) {
+        ColumnType type = types.getOrDefault(entry.getKey(), ColumnType.UNKNOWN);
+        types.put(entry.getKey(), inferTypes ? type.merge(entry.getValue()) : ColumnType.STRING);
+      }
+    }
+
+    List<ServiceNowColumn> columns = new ArrayList<>();
+    for (Map.Entry<String, ColumnType> entry : types.entrySet()) {
+      columns.add(new ServiceNowColumn(entry.getKey(), entry.getValue().getTypeName()));
+    }
+    return columns;
+  }
+
+  /**
+   * The narrowest type that holds all the values of a column seen so far.
+   */
+  private enum ColumnType {
+    UNKNOWN("string"),
+    INTEGER("integer"),
+    DECIMAL("decimal"),
+    BOOLEAN("boolean"),
+    STRING("string");
+
+    private final String typeName;
+
+    ColumnType(String typeName) {
+      this.typeName = typeName;
+    }
+
+    ColumnType merge(Object value) {
+      if (this == STRING || value == null || "".equals(value)) {
+        return this;
+      }
+      if (!(value instanceof String)) {
+        return STRING;
+      }
+
+      String string = (String) value;
+      switch (this) {
+        case UNKNOWN:
+          if (INTEGER_VALUE.matcher(string).matches()) {
+            return INTEGER;
+          }
+          if (DECIMAL_VALUE.matcher(string).matches()) {
+            return DECIMAL;
+          }
+          return BOOLEAN_VALUE.matcher(string).matches() ? BOOLEAN : STRING;
+        case INTEGER:
+          if (INTEGER_VALUE.matcher(string).matches()) {
+            return INTEGER;
+          }
+          return DECIMAL_VALUE.matcher(string).matches() ? DECIMAL : STRING;
+        case DECIMAL:
+          return DECIMAL_VALUE.matcher(string).matches() ? DECIMAL : STRING;
+        case BOOLEAN:
+          return BOOLEAN_VALUE.matcher(string).matches() ? BOOLEAN : STRING;
+        default:
+          return STRING;
+      }
+    }
+
+    String getTypeName() {
+      return typeName;
+    }
+  }
+}
@@ -19,6 +19,8 @@ package io.cdap.plugin.servicenow.source.util;
 import com.google.common.base.Strings;
 import com.google.gson.annotations.SerializedName;
 
+import javax.annotation.Nullable;
+
 /**
  * Information about a ServiceNow table column.
  */
@@ -31,6 +33,11 @@ public class ServiceNowColumn {
 
   private String mandatory;
 
+  @SerializedName("max_length")
+  private String maxLength;
+
+  private String scale;
+
   public ServiceNowColumn() {
   }
 
@@ -57,4 +64,33 @@ public class ServiceNowColumn {
   public boolean isMandatory() {
     return !Strings.isNullOrEmpty(mandatory) && "true".equalsIgnoreCase(mandatory);
   }
+
+  /**
+   * Returns the maximum length defined for the column in the dictionary, null if none is defined.
+   */
+  @Nullable
+  public Integer getMaxLength() {
+    return parseInteger(maxLength);
+  }
+
+  /**
+   * Returns the number of decimal places defined for the column in the dictionary, null if none is defined.
+   */
+  @Nullable
+  public Integer getScale() {
+    return parseInteger(scale);
+  }
+
+  @Nullable
+  private static Integer parseInteger(@Nullable String value) {
+    if (Strings.isNullOrEmpty(value)) {
+      return null;
+    }
+
+    try {
+      return Integer.valueOf(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
 }
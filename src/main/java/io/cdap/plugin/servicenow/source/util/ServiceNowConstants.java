@@ -86,6 +86,71 @@ public interface ServiceNowConstants {
    */
   String PROPERTY_END_DATE = "endDate";
 
+  /**
+   * Configuration property name used to specify the maximum number of pooled connections per route.
+   */
+  String PROPERTY_MAX_CONNECTIONS_PER_ROUTE = "maxConnectionsPerRoute";
+
+  /**
+   * Configuration property name used to specify the number of pages read by each split.
+   */
+  String PROPERTY_PAGES_PER_SPLIT = "pagesPerSplit";
+
+  /**
+   * Configuration property name used to specify how the pages of a table are requested.
+   */
+  String PROPERTY_PAGINATION_MODE = "paginationMode";
+
+  /**
+   * Configuration property name used to specify the columns to be read.
+   */
+  String PROPERTY_FIELDS = "fields";
+
+  /**
+   * Configuration property name used to specify the number of records sampled to infer the schema of a table.
+   */
+  String PROPERTY_SCHEMA_SAMPLE_SIZE = "schemaSampleSize";
+
+  /**
+   * Configuration property name used to specify the path of the file holding the watermark of each table.
+   */
+  String PROPERTY_WATERMARK_PATH = "watermarkPath";
+
+  /**
+   * Configuration property name used to specify the time zone of the start and end date times.
+   */
+  String PROPERTY_TIME_ZONE = "timeZone";
+
+  /**
+   * Configuration property name used to specify the date column the start and end dates are applied to.
+   */
+  String PROPERTY_DATE_RANGE_FIELD = "dateRangeField";
+
+  /**
+   * Configuration property name used to specify the encoded query filtering the records to be read.
+   */
+  String PROPERTY_ENCODED_QUERY = "encodedQuery";
+
+  /**
+   * Configuration property name used to specify the maximum number of requests per second sent by the source.
+   */
+  String PROPERTY_MAX_REQUESTS_PER_SECOND = "maxRequestsPerSecond";
+
+  /**
+   * Configuration property name used to specify the number of splits expected to run at the same time.
+   */
+  String PROPERTY_EXPECTED_PARALLELISM = "expectedParallelism";
+
+  /**
+   * Configuration property name used to specify whether slow page requests are hedged with a copy.
+   */
+  String PROPERTY_HEDGE_PAGE_REQUESTS = "hedgePageRequests";
+
+  /**
+   * Configuration property name used to specify the number of page requests each split keeps in flight.
+   */
+  String PROPERTY_PAGES_IN_FLIGHT = "pagesInFlight";
+
   /**
    * Table prefix to be used in case of Reporting mode.
    */
@@ -100,4 +165,39 @@ public interface ServiceNowConstants {
    * The max limit for the page size.
    */
   int PAGE_SIZE = 5000;
+
+  /**
+   * The default maximum number of pooled connections per route.
+   */
+  int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+  /**
+   * The default number of pages read by each split.
+   */
+  int DEFAULT_PAGES_PER_SPLIT = 1;
+
+  /**
+   * The default number of records sampled to infer the schema of a table.
+   */
+  int DEFAULT_SCHEMA_SAMPLE_SIZE = 1;
+
+  /**
+   * The default number of page requests each split keeps in flight.
+   */
+  int DEFAULT_PAGES_IN_FLIGHT = 1;
+
+  /**
+   * The unique identifier column present in every ServiceNow table.
+   */
+  String SYS_ID_FIELD = "sys_id";
+
+  /**
+   * The column holding the time a record was last updated, present in every ServiceNow table.
+   */
+  String SYS_UPDATED_ON_FIELD = "sys_updated_on";
+
+  /**
+   * The format of the date time values exchanged with ServiceNow.
+   */
+  String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
 }
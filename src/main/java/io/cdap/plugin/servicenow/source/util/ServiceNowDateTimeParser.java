@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses ServiceNow date and date time values, stored in GMT in the fixed `yyyy-MM-dd` and `yyyy-MM-dd HH:mm:ss`
+ * layouts, by reading the digits at their positions. Consecutive values mostly fall on the same day, so the day of
+ * the last parsed date is kept and values of that day are parsed without allocating. Instances are not thread safe.
+ */
+public class ServiceNowDateTimeParser {
+  private static final int DATE_LENGTH = 10;
+  private static final int DATE_TIME_LENGTH = 19;
+  private static final long SECONDS_PER_DAY = 86400L;
+  private static final long MICROS_PER_SECOND = 1000000L;
+
+  private String lastDate;
+  private int lastEpochDay;
+
+  /**
+   * Parses a date value.
+   *
+   * @param value The date in 'yyyy-MM-dd' format
+   * @return The number of days since the epoch
+   * @throws DateTimeParseException if the value is not a valid date in that format
+   */
+  public int parseDate(String value) {
+    if (value.length() != DATE_LENGTH) {
+      throw invalid(value, ServiceNowConstants.DATE_FORMAT, 0);
+    }
+    return parseEpochDay(value, ServiceNowConstants.DATE_FORMAT);
+  }
+
+  /**
+   * Parses a GMT date time value.
+   *
+   * @param value The date time in 'yyyy-MM-dd HH:mm:ss' format
+   * @return The number of microseconds since the epoch
+   * @throws DateTimeParseException if the value is not a valid date time in that format
+   */
+  public long parseTimestampMicros(String value) {
+    String format = ServiceNowConstants.DATE_TIME_FORMAT;
+    if (value.length() != DATE_TIME_LENGTH) {
+      throw invalid(value, format, 0);
+    }
+    checkSeparator(value, 10, ' ', format);
+    checkSeparator(value, 13, ':', format);
+    checkSeparator(value, 16, ':', format);
+
+    int hour = parseDigits(value, 11, 2, format);
+    int minute = parseDigits(value, 14, 2, format);
+    int second = parseDigits(value, 17, 2, format);
+    if (hour > 23 || minute > 59 || second > 59) {
+      throw invalid(value, format, 11);
+    }
+
+    long seconds = parseEpochDay(value, format) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+    return seconds * MICROS_PER_SECOND;
+  }
+
+  private int parseEpochDay(String value, String format) {
+    if (lastDate != null && value.regionMatches(0, lastDate, 0, DATE_LENGTH)) {
+      return lastEpochDay;
+    }
+
+    checkSeparator(value, 4, '-', format);
+    checkSeparator(value, 7, '-', format);
+    int year = parseDigits(value, 0, 4, format);
+    int month = parseDigits(value, 5, 2, format);
+    int day = parseDigits(value, 8, 2, format);
+
+    try {
+      lastEpochDay = (int) LocalDate.of(year, month, day).toEpochDay();
+    } catch (DateTimeException e) {
+      throw invalid(value, format, 0);
+    }
+    lastDate = value;
+    return lastEpochDay;
+  }
+
+  private static int parseDigits(String value, int start, int length, String format) {
+    int result = 0;
+    for (int i = start; i < start + length; i++) {
+      int digit = value.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw invalid(value, format, i);
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static void checkSeparator(String value, int index, char separator, String format) {
+    if (value.charAt(index) != separator) {
+      throw invalid(value, format, index);
+    }
+  }
+
+  private static DateTimeParseException invalid(String value, String format, int index) {
+    return new DateTimeParseException(String.format("Value '%s' is not in '%s' format", value, format), value, index);
+  }
+}
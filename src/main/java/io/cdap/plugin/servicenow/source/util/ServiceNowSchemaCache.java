@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the columns discovered from the dictionary of a ServiceNow instance on local disk, one file per table.
+ * Entries carry the version of the dictionary they were built from, callers compare it with the current version
+ * before using an entry.
+ */
+public class ServiceNowSchemaCache {
+  private static final Logger LOG = LoggerFactory.getLogger(ServiceNowSchemaCache.class);
+  private static final Gson GSON = new Gson();
+  // Renamed whenever the cached columns gain a property, so that older entries are not used
+  private static final String CACHE_DIRECTORY = "servicenow-schema-cache-v2";
+
+  private final File directory;
+
+  /**
+   * Constructor for ServiceNowSchemaCache object.
+   *
+   * @param directory The directory holding the cache files
+   */
+  public ServiceNowSchemaCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the cache of a ServiceNow instance, kept in the temporary directory of the local machine.
+   *
+   * @param restApiEndpoint The REST API endpoint of the instance
+   * @return The cache of the instance
+   */
+  public static ServiceNowSchemaCache forInstance(String restApiEndpoint) {
+    String instance = Hashing.sha256().hashString(restApiEndpoint, StandardCharsets.UTF_8).toString();
+    return new ServiceNowSchemaCache(new File(new File(System.getProperty("java.io.tmpdir"), CACHE_DIRECTORY),
+                                              instance));
+  }
+
+  /**
+   * Returns the cached entry of the table.
+   *
+   * @param tableName The table name
+   * @return The cached entry, null if there is none or it cannot be read
+   */
+  @Nullable
+  public Entry get(String tableName) {
+    File file = getFile(tableName);
+    if (!file.isFile()) {
+      return null;
+    }
+
+    try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      Entry entry = GSON.fromJson(reader, Entry.class);
+      return entry == null || entry.version == null || entry.columns == null ? null : entry;
+    } catch (IOException | JsonParseException e) {
+      LOG.debug("Ignoring unreadable schema cache file {}", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the entry of the table, replacing any previous one. Failures are logged and otherwise ignored as the
+   * cache only saves requests.
+   *
+   * @param tableName The table name
+   * @param entry The entry to be stored
+   */
+  public void put(String tableName, Entry entry) {
+    File file = getFile(tableName);
+    try {
+      Files.createDirectories(directory.toPath());
+      // Write aside and move, so that readers never see a partially written file
+      Path temp = Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+      try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        GSON.toJson(entry, writer);
+      }
+      Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Unable to write schema cache file {}", file, e);
+    }
+  }
+
+  private File getFile(String tableName) {
+    return new File(directory, tableName + ".json");
+  }
+
+  /**
+   * The columns of a table, with the tables they were collected from and the version of their dictionary entries.
+   */
+  public static class Entry {
+    private final List<String> tables;
+    private final String version;
+    private final List<ServiceNowColumn> columns;
+
+    /**
+     * Constructor for Entry object.
+     *
+     * @param tables The table and its parent tables, whose dictionary entries make up the columns
+     * @param version The version of the dictionary entries
+     * @param columns The columns of the table
+     */
+    public Entry(List<String> tables, String version, List<ServiceNowColumn> columns) {
+      this.tables = tables;
+      this.version = version;
+      this.columns = columns;
+    }
+
+    public List<String> getTables() {
+      return tables;
+    }
+
+    public String getVersion() {
+      return version;
+    }
+
+    public List<ServiceNowColumn> getColumns() {
+      return columns;
+    }
+  }
+}
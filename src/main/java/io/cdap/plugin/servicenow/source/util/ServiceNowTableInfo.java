@@ -18,6 +18,9 @@ package io.cdap.plugin.servicenow.source.util;
 
 import io.cdap.cdap.api.data.schema.Schema;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Information about a ServiceNow table.
  */
@@ -25,6 +28,8 @@ public class ServiceNowTableInfo {
   private final String tableName;
   private final Schema schema;
   private final int recordCount;
+  private final List<String> splitBoundaries;
+  private final List<Integer> splitRecordCounts;
 
   /**
    * Constructor for ServiceNowTableInfo object.
@@ -34,9 +39,39 @@ public class ServiceNowTableInfo {
    * @param recordCount The record count
    */
   public ServiceNowTableInfo(String tableName, Schema schema, int recordCount) {
+    this(tableName, schema, recordCount, Collections.emptyList());
+  }
+
+  /**
+   * Constructor for ServiceNowTableInfo object.
+   *
+   * @param tableName The table name
+   * @param schema The instance of Schema object
+   * @param recordCount The record count
+   * @param splitBoundaries The sys_id or sys_updated_on value every split but the first starts from, depending on
+   *                        the pagination mode, in ascending order
+   */
+  public ServiceNowTableInfo(String tableName, Schema schema, int recordCount, List<String> splitBoundaries) {
+    this(tableName, schema, recordCount, splitBoundaries, Collections.emptyList());
+  }
+
+  /**
+   * Constructor for ServiceNowTableInfo object.
+   *
+   * @param tableName The table name
+   * @param schema The instance of Schema object
+   * @param recordCount The record count
+   * @param splitBoundaries The sys_id or sys_updated_on value every split but the first starts from, depending on
+   *                        the pagination mode, in ascending order
+   * @param splitRecordCounts The number of records of every split, empty if they are not known
+   */
+  public ServiceNowTableInfo(String tableName, Schema schema, int recordCount, List<String> splitBoundaries,
+                             List<Integer> splitRecordCounts) {
     this.tableName = tableName;
     this.schema = schema;
     this.recordCount = recordCount;
+    this.splitBoundaries = splitBoundaries;
+    this.splitRecordCounts = splitRecordCounts;
   }
 
   public String getTableName() {
@@ -50,4 +85,16 @@ public class ServiceNowTableInfo {
   public int getRecordCount() {
     return recordCount;
   }
+
+  public List<String> getSplitBoundaries() {
+    return splitBoundaries == null ? Collections.emptyList() : splitBoundaries;
+  }
+
+  /**
+   * Returns the number of records of every split, one more than the split boundaries, or an empty list if they are
+   * not known.
+   */
+  public List<Integer> getSplitRecordCounts() {
+    return splitRecordCounts == null ? Collections.emptyList() : splitRecordCounts;
+  }
 }
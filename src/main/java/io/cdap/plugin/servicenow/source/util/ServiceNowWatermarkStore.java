@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps, for each table, the GMT date time up to which its records were read by the last successful run, in a
+ * single JSON file of any file system supported by Hadoop.
+ * The file is replaced as a whole: the watermarks are written to a temporary file next to it, which is then renamed
+ * over it, so that a failed write leaves the previous watermarks in place.
+ */
+public class ServiceNowWatermarkStore {
+  private static final Gson GSON = new Gson();
+  private static final Type WATERMARKS_TYPE = new TypeToken<Map<String, String>>() {
+  }.getType();
+
+  private final Path path;
+  private final Configuration conf;
+
+  /**
+   * Constructor for ServiceNowWatermarkStore object.
+   *
+   * @param path The path of the watermark file
+   * @param conf The Hadoop configuration used to access the file system
+   */
+  public ServiceNowWatermarkStore(String path, Configuration conf) {
+    this.path = new Path(path);
+    this.conf = conf;
+  }
+
+  /**
+   * Returns the watermark of every table read so far.
+   *
+   * @return The map of table names to GMT date times in 'yyyy-MM-dd HH:mm:ss' format, empty if no run succeeded yet
+   * @throws IOException if the file cannot be read or parsed
+   */
+  public Map<String, String> read() throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    Map<String, String> watermarks;
+    try (Reader reader = new InputStreamReader(fs.open(path), StandardCharsets.UTF_8)) {
+      watermarks = GSON.fromJson(reader, WATERMARKS_TYPE);
+    } catch (FileNotFoundException e) {
+      return Collections.emptyMap();
+    } catch (JsonParseException e) {
+      throw new IOException(String.format("Watermark file '%s' is not valid JSON", path), e);
+    }
+
+    return watermarks == null ? Collections.emptyMap() : watermarks;
+  }
+
+  /**
+   * Replaces the watermarks of all the tables.
+   *
+   * @param watermarks The map of table names to GMT date times in 'yyyy-MM-dd HH:mm:ss' format
+   * @throws IOException if the file cannot be written
+   */
+  public void write(Map<String, String> watermarks) throws IOException {
+    FileContext fileContext = FileContext.getFileContext(path.toUri(), conf);
+    Path temp = new Path(path.getParent(), String.format(".%s.%s.tmp", path.getName(), UUID.randomUUID()));
+    try {
+      try (FSDataOutputStream out = path.getFileSystem(conf).create(temp, false);
+           Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+        GSON.toJson(watermarks, WATERMARKS_TYPE, writer);
+      }
+      fileContext.rename(temp, path, Options.Rename.OVERWRITE);
+    } finally {
+      fileContext.delete(temp, false);
+    }
+  }
+}
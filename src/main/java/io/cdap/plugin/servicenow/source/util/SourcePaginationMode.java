@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Indicates how the pages of a table are requested from ServiceNow Table API.
+ */
+public enum SourcePaginationMode {
+
+  /**
+   * Pages are requested by their position in the table, the server skips all the preceding rows.
+   */
+  OFFSET("Offset"),
+
+  /**
+   * Pages are requested in sys_id order, each page resuming after the last sys_id of the previous one.
+   */
+  KEYSET("Keyset"),
+
+  /**
+   * Splits cover windows of the time records were last updated, pages are requested by their position in the window.
+   */
+  TIME_WINDOW("Time Window");
+
+  private final String value;
+
+  SourcePaginationMode(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Converts pagination mode string value into {@link SourcePaginationMode} enum.
+   *
+   * @param stringValue pagination mode string value
+   * @return source pagination mode in optional container
+   */
+  public static Optional<SourcePaginationMode> fromValue(String stringValue) {
+    return Stream.of(values())
+      .filter(keyType -> keyType.value.equalsIgnoreCase(stringValue))
+      .findAny();
+  }
+
+  public static String getSupportedModes() {
+    return Arrays.stream(SourcePaginationMode.values()).map(SourcePaginationMode::getValue)
+      .collect(Collectors.joining(", "));
+  }
+
+  public String getValue() {
+    return value;
+  }
+}
@@ -20,12 +20,19 @@ import com.google.common.base.Strings;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 /**
  * Utility class.
  */
 public class Util {
+  private static final DateTimeFormatter DATE_TIME_FORMATTER =
+    DateTimeFormatter.ofPattern(ServiceNowConstants.DATE_TIME_FORMAT).withZone(ZoneOffset.UTC);
+
   /**
    * Utility function to check if incoming string is empty or not.
    *
@@ -56,4 +63,45 @@ public class Util {
     }
     return true;
   }
+
+  /**
+   * Formats an instant the way ServiceNow stores date time values, in GMT.
+   *
+   * @param instant The instant to be formatted
+   * @return The GMT date time in 'yyyy-MM-dd HH:mm:ss' format
+   */
+  public static String formatDateTime(Instant instant) {
+    return DATE_TIME_FORMATTER.format(instant);
+  }
+
+  /**
+   * Parses a date time value the way ServiceNow stores it, in GMT.
+   *
+   * @param value The GMT date time in 'yyyy-MM-dd HH:mm:ss' format
+   * @return The parsed instant
+   */
+  public static Instant parseDateTime(String value) {
+    return Instant.from(DATE_TIME_FORMATTER.parse(value));
+  }
+
+  /**
+   * Parses a date time value of the given time zone.
+   *
+   * @param value The date time in 'yyyy-MM-dd HH:mm:ss' format
+   * @param zone The time zone of the value
+   * @return The parsed instant
+   */
+  public static Instant parseDateTime(String value, ZoneId zone) {
+    return Instant.from(DATE_TIME_FORMATTER.withZone(zone).parse(value));
+  }
+
+  /**
+   * Returns true if the value is a date time rather than a date, without checking its format.
+   *
+   * @param value The date or date time value
+   * @return true if the value is longer than a 'yyyy-MM-dd' date
+   */
+  public static boolean isDateTime(String value) {
+    return value.trim().length() > ServiceNowConstants.DATE_FORMAT.length();
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.servicenow.restapi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link AdaptiveConcurrencyLimiter}.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+  private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void testLimitGrowsWhileResponsesKeepUp() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, clock::get);
+    Assert.assertEquals(4, limiter.getLimit());
+
+    // About a limit's worth of fast responses adds one request
+    respond(limiter, 4, LATENCY_NANOS, 200);
+    Assert.assertEquals(4, limiter.getLimit());
+    respond(limiter, 1, LATENCY_NANOS, 200);
+    Assert.assertEquals(5, limiter.getLimit());
+
+    for (int i = 0; i < 50; i++) {
+      respond(limiter, limiter.getLimit(), LATENCY_NANOS, 200);
+    }
+    Assert.assertEquals(20, limiter.getLimit());
+  }
+
+  @Test
+  public void testRejectionsShrinkLimitOncePerOverload() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = grownLimiter();
+
+    // All the requests in flight are rejected by the same overload
+    respond(limiter, 12, LATENCY_NANOS, 429);
+    Assert.assertEquals(9, limiter.getLimit());
+
+    // Requests sent after the decrease are a new signal
+    respond(limiter, 1, LATENCY_NANOS, 503);
+    Assert.assertEquals(6, limiter.getLimit());
+
+    for (int i = 0; i < 20; i++) {
+      respond(limiter, 1, LATENCY_NANOS, 503);
+    }
+    Assert.assertEquals(1, limiter.getLimit());
+  }
+
+  @Test
+  public void testSlowResponsesShrinkLimit() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = grownLimiter();
+
+    respond(limiter, 1, LATENCY_NANOS * 3 / 2, 200);
+    Assert.assertEquals(12, limiter.getLimit());
+
+    respond(limiter, 1, LATENCY_NANOS * 3, 200);
+    Assert.assertEquals(9, limiter.getLimit());
+  }
+
+  @Test
+  public void testNetworkFailureShrinksLimit() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = grownLimiter();
+
+    AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+    clock.addAndGet(LATENCY_NANOS);
+    permit.onFailure();
+    permit.close();
+    Assert.assertEquals(9, limiter.getLimit());
+  }
+
+  @Test(timeout = 10000)
+  public void testAcquireWaitsForRelease() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, clock::get);
+    AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+
+    Thread waiter = new Thread(() -> {
+      try {
+        limiter.acquire().close();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiter.start();
+    waiter.join(200);
+    Assert.assertTrue(waiter.isAlive());
+
+    permit.close();
+    // Closing twice releases a single request
+    permit.close();
+    waiter.join();
+  }
+
+  private AdaptiveConcurrencyLimiter grownLimiter() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(12, clock::get);
+    for (int i = 0; i < 50; i++) {
+      respond(limiter, limiter.getLimit(), LATENCY_NANOS, 200);
+    }
+    Assert.assertEquals(12, limiter.getLimit());
+    return limiter;
+  }
+
+  /**
+   * Sends the given number of requests together and answers them all after the given latency.
+   */
+  private void respond(AdaptiveConcurrencyLimiter limiter, int requests, long latencyNanos, int httpStatus)
+    throws InterruptedException {
+    clock.incrementAndGet();
+    List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+    for (int i = 0; i < requests; i++) {
+      permits.add(limiter.acquire());
+    }
+
+    clock.addAndGet(latencyNanos);
+    for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+      permit.onResponse(httpStatus);
+      permit.close();
+    }
+  }
+}
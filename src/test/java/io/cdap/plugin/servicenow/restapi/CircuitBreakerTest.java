@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.servicenow.restapi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+  private static final long OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private final AtomicLong clock = new AtomicLong(1000000);
+  private final CircuitBreaker breaker = new CircuitBreaker("https://instance.service-now.com", clock::get);
+
+  @Test
+  public void testOpensAfterConsecutiveFailures() {
+    for (int i = 0; i < 4; i++) {
+      breaker.onFailure();
+    }
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    Assert.assertEquals(0, breaker.tryAcquire());
+
+    breaker.onFailure();
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    Assert.assertEquals(OPEN_MILLIS, breaker.tryAcquire());
+  }
+
+  @Test
+  public void testOpensOnFailureRate() {
+    // Failures scattered among successes never reach 5 in a row
+    for (int i = 0; i < 9; i++) {
+      if (i % 2 == 0) {
+        breaker.onFailure();
+      } else {
+        breaker.onSuccess();
+      }
+    }
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+    breaker.onSuccess();
+    breaker.onFailure();
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void testStaysClosedWithOccasionalFailures() {
+    for (int i = 0; i < 100; i++) {
+      if (i % 3 == 0) {
+        breaker.onFailure();
+      } else {
+        breaker.onSuccess();
+      }
+    }
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testHalfOpenProbe() {
+    open();
+    clock.addAndGet(OPEN_MILLIS);
+
+    // A single request probes the endpoint, the others wait for its outcome
+    Assert.assertEquals(0, breaker.tryAcquire());
+    Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    Assert.assertTrue(breaker.tryAcquire() > 0);
+
+    breaker.onSuccess();
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    Assert.assertEquals(0, breaker.tryAcquire());
+  }
+
+  @Test
+  public void testFailedProbeOpensForLonger() {
+    open();
+    clock.addAndGet(OPEN_MILLIS);
+    Assert.assertEquals(0, breaker.tryAcquire());
+
+    breaker.onFailure();
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    Assert.assertEquals(2 * OPEN_MILLIS, breaker.tryAcquire());
+
+    clock.addAndGet(2 * OPEN_MILLIS);
+    Assert.assertEquals(0, breaker.tryAcquire());
+    breaker.onFailure();
+    Assert.assertEquals(4 * OPEN_MILLIS, breaker.tryAcquire());
+  }
+
+  @Test
+  public void testLostProbeIsReplaced() {
+    open();
+    clock.addAndGet(OPEN_MILLIS);
+    Assert.assertEquals(0, breaker.tryAcquire());
+
+    clock.addAndGet(TimeUnit.MINUTES.toMillis(2));
+    Assert.assertEquals(0, breaker.tryAcquire());
+    Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+  }
+
+  @Test
+  public void testCancelledProbeIsReplacedRightAway() {
+    open();
+    clock.addAndGet(OPEN_MILLIS);
+    Assert.assertEquals(0, breaker.tryAcquire());
+    Assert.assertTrue(breaker.tryAcquire() > 0);
+
+    // The probe was cancelled before its response arrived, the next request probes again without waiting
+    breaker.onAbandoned();
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    Assert.assertEquals(0, breaker.tryAcquire());
+    Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+    // The abandoned probe did not count as a failure
+    breaker.onFailure();
+    Assert.assertEquals(2 * OPEN_MILLIS, breaker.tryAcquire());
+  }
+
+  @Test
+  public void testDeferredProbeDoesNotBlockItsRetry() throws InterruptedException {
+    open();
+    clock.addAndGet(OPEN_MILLIS);
+    Assert.assertEquals(0, breaker.tryAcquire());
+
+    // The probe could not be sent and is retried on the blocking path, which must not wait for the probe itself
+    breaker.onAbandoned();
+    Assert.assertTrue(breaker.acquire(0));
+    breaker.onSuccess();
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testAbandonedRequestLeavesClosedCircuit() {
+    for (int i = 0; i < 4; i++) {
+      breaker.onFailure();
+      breaker.onAbandoned();
+    }
+    breaker.onFailure();
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void testAcquireGivesUp() throws InterruptedException {
+    open();
+    Assert.assertFalse(breaker.acquire(0));
+  }
+
+  private void open() {
+    for (int i = 0; i < 5; i++) {
+      breaker.onFailure();
+    }
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.servicenow.restapi;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tests for {@link HedgedRequestExecutor}.
+ */
+public class HedgedRequestExecutorTest {
+  private static final String URL = "https://instance.service-now.com/api/now/table/incident";
+
+  private final List<HttpGet> requests = new CopyOnWriteArrayList<>();
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker(URL, System::currentTimeMillis);
+  private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, System::nanoTime);
+
+  @Test(timeout = 30000)
+  public void testSlowRequestIsHedged() throws IOException {
+    HedgedRequestExecutor executor = new HedgedRequestExecutor();
+    warmUp(executor);
+
+    // The first request hangs until it is aborted, its copy responds right away
+    CloseableHttpClient httpClient = mockClient(true);
+    requests.clear();
+    CloseableHttpResponse response = execute(executor, httpClient, new HttpGet(URL));
+
+    Assert.assertEquals(2, requests.size());
+    Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+    Assert.assertTrue(requests.get(0).isAborted());
+    Assert.assertFalse(requests.get(1).isAborted());
+  }
+
+  @Test(timeout = 30000)
+  public void testHedgesAreCapped() throws IOException {
+    HedgedRequestExecutor executor = new HedgedRequestExecutor();
+    warmUp(executor);
+
+    CloseableHttpClient httpClient = mockClient(true);
+    requests.clear();
+    execute(executor, httpClient, new HttpGet(URL));
+    Assert.assertEquals(2, requests.size());
+
+    // The cap of 5% of the requests is reached, the next slow request is waited for
+    requests.clear();
+    HttpGet request = abortLater(new HttpGet(URL));
+    try {
+      execute(executor, httpClient, request);
+      Assert.fail("The aborted request should have failed");
+    } catch (IOException e) {
+      Assert.assertEquals(1, requests.size());
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testCopyTakesAPermit() throws IOException {
+    HedgedRequestExecutor executor = new HedgedRequestExecutor();
+    warmUp(executor);
+
+    CloseableHttpClient httpClient = mockClient(true);
+    requests.clear();
+    execute(executor, httpClient, new HttpGet(URL)).close();
+    Assert.assertEquals(2, requests.size());
+
+    // The permit of the copy was released once its response won, all the permits are available again
+    for (int i = 0; i < limiter.getLimit(); i++) {
+      Assert.assertNotNull(limiter.tryAcquire());
+    }
+    Assert.assertNull(limiter.tryAcquire());
+  }
+
+  @Test(timeout = 30000)
+  public void testNoHedgeWithoutPermit() throws IOException {
+    HedgedRequestExecutor executor = new HedgedRequestExecutor();
+    warmUp(executor);
+
+    // The limits of the client or of the endpoint leave no room for a copy, the slow request is waited for
+    CloseableHttpClient httpClient = mockClient(true);
+    requests.clear();
+    HttpGet request = abortLater(new HttpGet(URL));
+    try {
+      executor.execute(httpClient, request, circuitBreaker, () -> null);
+      Assert.fail("The aborted request should have failed");
+    } catch (IOException e) {
+      Assert.assertEquals(1, requests.size());
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testNoHedgeWhileCircuitNotClosed() throws IOException {
+    HedgedRequestExecutor executor = new HedgedRequestExecutor();
+    warmUp(executor);
+    for (int i = 0; i < 5; i++) {
+      circuitBreaker.onFailure();
+    }
+
+    CloseableHttpClient httpClient = mockClient(true);
+    requests.clear();
+    try {
+      execute(executor, httpClient, abortLater(new HttpGet(URL)));
+      Assert.fail("The aborted request should have failed");
+    } catch (IOException e) {
+      Assert.assertEquals(1, requests.size());
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testNoHedgeWithoutLatencies() throws IOException {
+    HedgedRequestExecutor executor = new HedgedRequestExecutor();
+    CloseableHttpClient httpClient = mockClient(false);
+
+    execute(executor, httpClient, new HttpGet(URL));
+    Assert.assertEquals(1, requests.size());
+  }
+
+  private CloseableHttpResponse execute(HedgedRequestExecutor executor, CloseableHttpClient httpClient,
+                                        HttpGet request) throws IOException {
+    return executor.execute(httpClient, request, circuitBreaker, limiter::tryAcquire);
+  }
+
+  /**
+   * Aborts the request after half a second, so that a request that is not hedged does not hang.
+   */
+  private static HttpGet abortLater(HttpGet request) {
+    Thread aborter = new Thread(() -> {
+      try {
+        Thread.sleep(500);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      request.abort();
+    });
+    aborter.start();
+    return request;
+  }
+
+  private void warmUp(HedgedRequestExecutor executor) throws IOException {
+    CloseableHttpClient httpClient = mockClient(false);
+    for (int i = 0; i < 20; i++) {
+      execute(executor, httpClient, new HttpGet(URL)).close();
+    }
+  }
+
+  /**
+   * Returns a client that answers right away, but for its first request when `firstHangs` is set.
+   */
+  private CloseableHttpClient mockClient(boolean firstHangs) throws IOException {
+    CloseableHttpClient httpClient = Mockito.mock(CloseableHttpClient.class);
+    Mockito.when(httpClient.execute(Mockito.any(HttpGet.class))).thenAnswer(invocation -> {
+      HttpGet request = invocation.getArgument(0);
+      requests.add(request);
+      if (firstHangs && requests.size() == 1) {
+        while (!request.isAborted()) {
+          Thread.sleep(10);
+        }
+        throw new IOException("Request aborted");
+      }
+
+      CloseableHttpResponse response = Mockito.mock(CloseableHttpResponse.class);
+      Mockito.when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+      return response;
+    });
+    return httpClient;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.restapi;
+
+import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
+import org.apache.oltu.oauth2.client.response.OAuthJSONAccessTokenResponse;
+import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link OAuthTokenCache}.
+ */
+public class OAuthTokenCacheTest {
+  private static final String TOKEN_URL = "https://instance.service-now.com/oauth_token.do";
+  private static final long EXPIRES_IN_SECONDS = TimeUnit.MINUTES.toSeconds(30);
+
+  private final AtomicLong clock = new AtomicLong(1000000);
+  private final List<String> grants = new ArrayList<>();
+  private final Deque<Object> responses = new ArrayDeque<>();
+  private final OAuthTokenCache.TokenHolder holder = new OAuthTokenCache.TokenHolder(
+    TOKEN_URL, "client", "secret", "user", "password", this::requestToken, clock::get);
+
+  @Test
+  public void testTokenIsReusedUntilRefreshMargin() throws Exception {
+    responses.add(response("token-1", "refresh-1", EXPIRES_IN_SECONDS));
+    Assert.assertEquals("token-1", holder.getAccessToken());
+
+    // The token is renewed 60 seconds before it expires
+    clock.addAndGet(TimeUnit.SECONDS.toMillis(EXPIRES_IN_SECONDS - 61));
+    Assert.assertEquals("token-1", holder.getAccessToken());
+    Assert.assertEquals(1, grants.size());
+
+    responses.add(response("token-2", null, EXPIRES_IN_SECONDS));
+    clock.addAndGet(TimeUnit.SECONDS.toMillis(1));
+    Assert.assertEquals("token-2", holder.getAccessToken());
+    Assert.assertEquals("refresh_token", grants.get(1));
+  }
+
+  @Test
+  public void testExpiredTokenIsRenewed() throws Exception {
+    responses.add(response("token-1", "refresh-1", EXPIRES_IN_SECONDS));
+    holder.getAccessToken();
+
+    responses.add(response("token-2", "refresh-2", EXPIRES_IN_SECONDS));
+    clock.addAndGet(TimeUnit.SECONDS.toMillis(EXPIRES_IN_SECONDS));
+    Assert.assertEquals("token-2", holder.getAccessToken());
+
+    // The refresh token returned last is used for the next renewal
+    responses.add(response("token-3", null, EXPIRES_IN_SECONDS));
+    clock.addAndGet(TimeUnit.SECONDS.toMillis(EXPIRES_IN_SECONDS));
+    Assert.assertEquals("token-3", holder.getAccessToken());
+    Assert.assertEquals(3, grants.size());
+    Assert.assertEquals("password", grants.get(0));
+    Assert.assertEquals("refresh_token", grants.get(1));
+    Assert.assertEquals("refresh_token", grants.get(2));
+  }
+
+  @Test
+  public void testRejectedRefreshFallsBackToPassword() throws Exception {
+    responses.add(response("token-1", "refresh-1", EXPIRES_IN_SECONDS));
+    holder.getAccessToken();
+
+    responses.add(OAuthProblemException.error("invalid_grant"));
+    responses.add(response("token-2", "refresh-2", EXPIRES_IN_SECONDS));
+    clock.addAndGet(TimeUnit.SECONDS.toMillis(EXPIRES_IN_SECONDS));
+    Assert.assertEquals("token-2", holder.getAccessToken());
+    Assert.assertEquals(3, grants.size());
+    Assert.assertEquals("refresh_token", grants.get(1));
+    Assert.assertEquals("password", grants.get(2));
+  }
+
+  @Test
+  public void testInvalidatedTokenIsRenewed() throws Exception {
+    responses.add(response("token-1", "refresh-1", EXPIRES_IN_SECONDS));
+    holder.getAccessToken();
+
+    // Another token being rejected leaves the current one in place
+    holder.invalidate("token-0");
+    Assert.assertEquals("token-1", holder.getAccessToken());
+
+    responses.add(response("token-2", null, EXPIRES_IN_SECONDS));
+    holder.invalidate("token-1");
+    Assert.assertEquals("token-2", holder.getAccessToken());
+  }
+
+  @Test
+  public void testHolderIsReplacedWhenSecretsChange() {
+    OAuthTokenCache.TokenHolder first = OAuthTokenCache.getHolder(TOKEN_URL, "client", "secret", "user", "old");
+    Assert.assertSame(first, OAuthTokenCache.getHolder(TOKEN_URL, "client", "secret", "user", "old"));
+
+    OAuthTokenCache.TokenHolder second = OAuthTokenCache.getHolder(TOKEN_URL, "client", "secret", "user", "new");
+    Assert.assertNotSame(first, second);
+    Assert.assertTrue(second.hasSecrets("secret", "new"));
+    Assert.assertNotSame(second, OAuthTokenCache.getHolder(TOKEN_URL, "client", "other", "user", "new"));
+  }
+
+  private OAuthJSONAccessTokenResponse requestToken(OAuthClientRequest request) throws OAuthProblemException,
+    OAuthSystemException {
+    grants.add(request.getBody().contains("grant_type=refresh_token") ? "refresh_token" : "password");
+    Object response = responses.remove();
+    if (response instanceof OAuthProblemException) {
+      throw (OAuthProblemException) response;
+    }
+    return (OAuthJSONAccessTokenResponse) response;
+  }
+
+  private static OAuthJSONAccessTokenResponse response(String accessToken, @Nullable String refreshToken,
+                                                       long expiresIn) {
+    OAuthJSONAccessTokenResponse response = Mockito.mock(OAuthJSONAccessTokenResponse.class);
+    Mockito.when(response.getAccessToken()).thenReturn(accessToken);
+    Mockito.when(response.getRefreshToken()).thenReturn(refreshToken);
+    Mockito.when(response.getExpiresIn()).thenReturn(expiresIn);
+    return response;
+  }
+}
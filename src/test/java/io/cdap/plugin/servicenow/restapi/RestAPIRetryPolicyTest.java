@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.servicenow.restapi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLHandshakeException;
+
+/**
+ * Tests for {@link RestAPIRetryPolicy}.
+ */
+public class RestAPIRetryPolicyTest {
+  // Sun, 06 Nov 1994 08:49:37 GMT
+  private static final long NOW_MILLIS = 784111777000L;
+
+  @Test
+  public void testRetryableStatus() {
+    Assert.assertTrue(RestAPIRetryPolicy.isRetryable(429));
+    Assert.assertTrue(RestAPIRetryPolicy.isRetryable(500));
+    Assert.assertTrue(RestAPIRetryPolicy.isRetryable(503));
+    Assert.assertFalse(RestAPIRetryPolicy.isRetryable(200));
+    Assert.assertFalse(RestAPIRetryPolicy.isRetryable(400));
+    Assert.assertFalse(RestAPIRetryPolicy.isRetryable(404));
+    Assert.assertFalse(RestAPIRetryPolicy.isRetryable(501));
+  }
+
+  @Test
+  public void testRetryableError() {
+    Assert.assertTrue(RestAPIRetryPolicy.isRetryable(new SocketTimeoutException()));
+    Assert.assertTrue(RestAPIRetryPolicy.isRetryable(new IOException("Connection reset")));
+    Assert.assertFalse(RestAPIRetryPolicy.isRetryable(new UnknownHostException()));
+    Assert.assertFalse(RestAPIRetryPolicy.isRetryable(new SSLHandshakeException("bad certificate")));
+  }
+
+  @Test
+  public void testBackoffGrowsWithJitterUpToCeiling() {
+    RestAPIRetryPolicy policy = new RestAPIRetryPolicy(new Random(42));
+    for (int attempt = 0; attempt < 20; attempt++) {
+      long ceiling = Math.min(TimeUnit.MINUTES.toMillis(1), TimeUnit.SECONDS.toMillis(1) << Math.min(attempt, 16));
+      for (int i = 0; i < 100; i++) {
+        long delay = policy.getDelayMillis(attempt, null, null, NOW_MILLIS);
+        Assert.assertTrue(delay >= ceiling / 2 && delay <= ceiling);
+      }
+    }
+  }
+
+  @Test
+  public void testRetryAfter() {
+    Assert.assertEquals(Long.valueOf(120000), RestAPIRetryPolicy.getServerDelayMillis("120", null, NOW_MILLIS));
+    Assert.assertEquals(Long.valueOf(30000),
+                        RestAPIRetryPolicy.getServerDelayMillis("Sun, 06 Nov 1994 08:50:07 GMT", null, NOW_MILLIS));
+    // Retry-After wins over the reset of the rate limit window
+    Assert.assertEquals(Long.valueOf(5000),
+                        RestAPIRetryPolicy.getServerDelayMillis("5", String.valueOf(NOW_MILLIS / 1000 + 60),
+                                                                NOW_MILLIS));
+    // A date in the past means retrying now, a very long wait is shortened
+    Assert.assertEquals(Long.valueOf(0),
+                        RestAPIRetryPolicy.getServerDelayMillis("Sun, 06 Nov 1994 08:00:00 GMT", null, NOW_MILLIS));
+    Assert.assertEquals(Long.valueOf(TimeUnit.MINUTES.toMillis(5)),
+                        RestAPIRetryPolicy.getServerDelayMillis("86400", null, NOW_MILLIS));
+    Assert.assertNull(RestAPIRetryPolicy.getServerDelayMillis("soon", null, NOW_MILLIS));
+    Assert.assertNull(RestAPIRetryPolicy.getServerDelayMillis(null, null, NOW_MILLIS));
+  }
+
+  @Test
+  public void testRateLimitReset() {
+    String reset = String.valueOf(NOW_MILLIS / 1000 + 42);
+    Assert.assertEquals(Long.valueOf(42000), RestAPIRetryPolicy.getServerDelayMillis(null, reset, NOW_MILLIS));
+
+    long delay = new RestAPIRetryPolicy(new Random(42)).getDelayMillis(3, null, reset, NOW_MILLIS);
+    Assert.assertTrue(delay >= 42000 && delay <= 43000);
+
+    Assert.assertEquals(Long.valueOf(42000),
+                        RestAPIRetryPolicy.getExhaustedRateLimitDelayMillis("0", reset, NOW_MILLIS));
+    Assert.assertNull(RestAPIRetryPolicy.getExhaustedRateLimitDelayMillis("17", reset, NOW_MILLIS));
+    Assert.assertNull(RestAPIRetryPolicy.getExhaustedRateLimitDelayMillis(null, reset, NOW_MILLIS));
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.cdap.plugin.servicenow.source.apiclient.ServiceNowTableRecordFuture;
+import io.cdap.plugin.servicenow.source.apiclient.ServiceNowTableRecordStream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link ServiceNowPagePrefetcher}.
+ */
+public class ServiceNowPagePrefetcherTest {
+  private static final int PAGE_SIZE = 700;
+
+  @Test
+  public void testReadsAllPagesInOrder() throws IOException {
+    AtomicInteger fetched = new AtomicInteger();
+    List<Integer> rows = readAll(new ServiceNowPagePrefetcher<>("test", 3, PAGE_SIZE, 1, (page, lastRow) -> {
+      fetched.incrementAndGet();
+      Assert.assertEquals(page == 0 ? null : page * PAGE_SIZE - 1, lastRow);
+      return pageOf(page * PAGE_SIZE, PAGE_SIZE);
+    }));
+
+    Assert.assertEquals(3, fetched.get());
+    Assert.assertEquals(3 * PAGE_SIZE, rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      Assert.assertEquals(i, (int) rows.get(i));
+    }
+  }
+
+  @Test
+  public void testStopsAfterShortPage() throws IOException {
+    AtomicInteger fetched = new AtomicInteger();
+    List<Integer> rows = readAll(new ServiceNowPagePrefetcher<>("test", 5, PAGE_SIZE, 1, (page, lastRow) -> {
+      fetched.incrementAndGet();
+      return pageOf(page * PAGE_SIZE, page == 0 ? PAGE_SIZE : 10);
+    }));
+
+    Assert.assertEquals(2, fetched.get());
+    Assert.assertEquals(PAGE_SIZE + 10, rows.size());
+  }
+
+  @Test(expected = IOException.class)
+  public void testPropagatesFetchError() throws IOException {
+    readAll(new ServiceNowPagePrefetcher<>("test", 2, PAGE_SIZE, 1, (page, lastRow) -> {
+      if (page == 1) {
+        throw new IOException("Connection reset");
+      }
+      return pageOf(0, PAGE_SIZE);
+    }));
+  }
+
+  @Test
+  public void testKeepsPagesInFlight() throws IOException {
+    AtomicInteger requested = new AtomicInteger();
+    AtomicInteger opened = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    List<Integer> rows = readAll(new ServiceNowPagePrefetcher<>("test", 6, PAGE_SIZE, 1, 3, page -> {
+      Assert.assertEquals(requested.getAndIncrement(), page);
+      maxInFlight.accumulateAndGet(requested.get() - opened.get(), Math::max);
+      return futureOf(page * PAGE_SIZE, PAGE_SIZE, true, opened);
+    }));
+
+    Assert.assertEquals(6, requested.get());
+    Assert.assertEquals(3, maxInFlight.get());
+    Assert.assertEquals(6 * PAGE_SIZE, rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      Assert.assertEquals(i, (int) rows.get(i));
+    }
+  }
+
+  @Test
+  public void testCancelsPagesAfterShortPage() throws IOException {
+    List<ServiceNowTableRecordFuture<Integer>> futures = new ArrayList<>();
+    List<Integer> rows = readAll(new ServiceNowPagePrefetcher<>("test", 10, PAGE_SIZE, 1, 4, page -> {
+      ServiceNowTableRecordFuture<Integer> future = futureOf(page * PAGE_SIZE, page == 1 ? 10 : PAGE_SIZE, true,
+                                                             new AtomicInteger());
+      futures.add(future);
+      return future;
+    }));
+
+    Assert.assertEquals(PAGE_SIZE + 10, rows.size());
+    Assert.assertEquals(5, futures.size());
+    for (int page = 0; page < futures.size(); page++) {
+      Mockito.verify(futures.get(page), Mockito.times(page < 2 ? 0 : 1)).cancel();
+    }
+  }
+
+  @Test
+  public void testWaitsForPageNotSent() throws IOException {
+    AtomicInteger requested = new AtomicInteger();
+    AtomicInteger opened = new AtomicInteger();
+    List<Integer> rows = readAll(new ServiceNowPagePrefetcher<>("test", 4, PAGE_SIZE, 1, 4, page -> {
+      requested.incrementAndGet();
+      // The second page is only sent once it is opened, the pages after it are not requested until then
+      Assert.assertTrue(page <= 1 || opened.get() >= 2);
+      return futureOf(page * PAGE_SIZE, PAGE_SIZE, page != 1, opened);
+    }));
+
+    Assert.assertEquals(4, requested.get());
+    Assert.assertEquals(4 * PAGE_SIZE, rows.size());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCloseAbortsThePageBeingRead() throws Exception {
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch aborted = new CountDownLatch(1);
+    ServiceNowTableRecordStream<Integer> stream = Mockito.mock(ServiceNowTableRecordStream.class);
+    Mockito.when(stream.hasNext()).thenAnswer(invocation -> {
+      reading.countDown();
+      Uninterruptibles.awaitUninterruptibly(aborted);
+      throw new UncheckedIOException(new IOException("Connection aborted"));
+    });
+    Mockito.doAnswer(invocation -> {
+      aborted.countDown();
+      return null;
+    }).when(stream).abort();
+
+    ServiceNowPagePrefetcher<Integer> prefetcher = new ServiceNowPagePrefetcher<>("test", 1, PAGE_SIZE, 1,
+                                                                                  (page, lastRow) -> stream);
+    reading.await();
+    prefetcher.close();
+
+    // The page is only closed once, by the background thread that reads it
+    Mockito.verify(stream).abort();
+    Mockito.verify(stream, Mockito.timeout(5000)).close();
+    Mockito.verify(stream, Mockito.after(200).times(1)).close();
+  }
+
+  /**
+   * Runs that keep a watermark read the records last updated up to their snapshot time. A record updated while the
+   * first run is in progress leaves that run, the second run reads it again, and every other record is read once.
+   */
+  @Test
+  public void testKeysetRunsMissNoRecordChangedMidRun() throws IOException {
+    // Records by sys_id, with the time they were last updated
+    Map<Integer, Integer> table = new TreeMap<>();
+    for (int sysId = 0; sysId < 3 * PAGE_SIZE; sysId++) {
+      table.put(sysId, 1);
+    }
+
+    List<Integer> firstRun = readAll(new ServiceNowPagePrefetcher<>("test", 4, PAGE_SIZE, 1, (page, lastRow) -> {
+      if (page == 1) {
+        // A record of the first page is updated after the snapshot time of the run
+        table.put(10, 3);
+      }
+      return pageOf(table.entrySet().stream()
+                      .filter(record -> record.getValue() <= 2 && (lastRow == null || record.getKey() > lastRow))
+                      .map(Map.Entry::getKey)
+                      .limit(PAGE_SIZE)
+                      .collect(Collectors.toList()));
+    }));
+    List<Integer> secondRun = readAll(new ServiceNowPagePrefetcher<>("test", 4, PAGE_SIZE, 1, (page, lastRow) ->
+      pageOf(table.entrySet().stream()
+               .filter(record -> record.getValue() > 2 && (lastRow == null || record.getKey() > lastRow))
+               .map(Map.Entry::getKey)
+               .limit(PAGE_SIZE)
+               .collect(Collectors.toList()))));
+
+    Assert.assertEquals(3 * PAGE_SIZE, firstRun.size());
+    Assert.assertEquals(3 * PAGE_SIZE, new HashSet<>(firstRun).size());
+    Assert.assertEquals(Collections.singletonList(10), secondRun);
+  }
+
+  /**
+   * The same change makes a run that pages by position skip a record that no later run reads, which is why a
+   * watermark requires Keyset pagination.
+   */
+  @Test
+  public void testOffsetRunSkipsRecordChangedMidRun() throws IOException {
+    Map<Integer, Integer> table = new TreeMap<>();
+    for (int sysId = 0; sysId < 3 * PAGE_SIZE; sysId++) {
+      table.put(sysId, 1);
+    }
+
+    List<Integer> rows = readAll(new ServiceNowPagePrefetcher<>("test", 4, PAGE_SIZE, 1, (page, lastRow) -> {
+      if (page == 1) {
+        table.put(10, 3);
+      }
+      return pageOf(table.entrySet().stream()
+                      .filter(record -> record.getValue() <= 2)
+                      .map(Map.Entry::getKey)
+                      .skip((long) page * PAGE_SIZE)
+                      .limit(PAGE_SIZE)
+                      .collect(Collectors.toList()));
+    }));
+
+    // The first record of the second page moved up to the first page, which was already read
+    Assert.assertFalse(rows.contains(PAGE_SIZE));
+    Assert.assertEquals(1, table.get(PAGE_SIZE).intValue());
+  }
+
+  private static List<Integer> readAll(ServiceNowPagePrefetcher<Integer> prefetcher) throws IOException {
+    List<Integer> rows = new ArrayList<>();
+    try (ServiceNowPagePrefetcher<Integer> closeable = prefetcher) {
+      while (closeable.hasNext()) {
+        rows.add(closeable.next());
+      }
+    }
+    return rows;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ServiceNowTableRecordFuture<Integer> futureOf(int first, int size, boolean sent,
+                                                               AtomicInteger opened) throws IOException {
+    ServiceNowTableRecordFuture<Integer> future = Mockito.mock(ServiceNowTableRecordFuture.class);
+    Mockito.when(future.isSent()).thenReturn(sent);
+    Mockito.when(future.open()).thenAnswer(invocation -> {
+      opened.incrementAndGet();
+      return pageOf(first, size);
+    });
+    return future;
+  }
+
+  private static ServiceNowTableRecordStream<Integer> pageOf(List<Integer> rows) {
+    return streamOf(rows.iterator());
+  }
+
+  private static ServiceNowTableRecordStream<Integer> pageOf(int first, int size) {
+    return streamOf(new Iterator<Integer>() {
+      private int next = first;
+
+      @Override
+      public boolean hasNext() {
+        return next < first + size;
+      }
+
+      @Override
+      public Integer next() {
+        return next++;
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ServiceNowTableRecordStream<Integer> streamOf(Iterator<Integer> values) {
+    ServiceNowTableRecordStream<Integer> stream = Mockito.mock(ServiceNowTableRecordStream.class);
+    Mockito.when(stream.hasNext()).thenAnswer(invocation -> values.hasNext());
+    Mockito.when(stream.next()).thenAnswer(invocation -> values.next());
+    return stream;
+  }
+}
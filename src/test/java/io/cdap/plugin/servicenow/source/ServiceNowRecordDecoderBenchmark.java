@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares decoding a page of a wide ServiceNow table the way the reader used to do it (whole page into a String,
+ * a JsonObject and a list of Gson maps, then one map lookup and a switch on the schema type per field) against
+ * {@link ServiceNowRecordDecoder}, which builds the records straight from the JSON tokens with the conversion of
+ * every field resolved once per schema. `reorderedMembers` measures the decoder on rows whose members do not come
+ * in the same order, where every field falls back to a lookup by name.
+ *
+ * Scores are per record: the throughput is records per second and, with the GC profiler enabled by {@link #main},
+ * `gc.alloc.rate.norm` is the number of bytes allocated per record.
+ *
+ * Run it from the test classpath: `java -cp <test classpath> io.cdap.plugin.servicenow.source
+ * .ServiceNowRecordDecoderBenchmark`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ServiceNowRecordDecoderBenchmark {
+  private static final int ROWS_PER_PAGE = 1000;
+  private static final String TABLE_NAME = "incident";
+  private static final Gson GSON = new Gson();
+  private static final Type RESULT_TYPE = new TypeToken<List<Map<String, Object>>>() {
+  }.getType();
+
+  @Param({"50", "300"})
+  private int columns;
+
+  private byte[] page;
+  private byte[] reorderedPage;
+  private Schema schema;
+  private ServiceNowRecordDecoder decoder;
+
+  @Setup
+  public void setup() {
+    List<Schema.Field> fields = new ArrayList<>();
+    List<String> members = new ArrayList<>();
+    for (int i = 0; i < columns; i++) {
+      String name = "u_column_" + i;
+      Schema.Type type;
+      String value;
+      switch (i % 10) {
+        case 0:
+        case 1:
+          type = Schema.Type.INT;
+          value = String.valueOf(i * 31);
+          break;
+        case 2:
+        case 3:
+          type = Schema.Type.DOUBLE;
+          value = String.valueOf(i * 1.25);
+          break;
+        case 4:
+          type = Schema.Type.BOOLEAN;
+          value = String.valueOf(i % 3 == 0);
+          break;
+        default:
+          type = Schema.Type.STRING;
+          value = "value of column " + i + " with some typical length";
+      }
+      fields.add(Schema.Field.of(name, Schema.nullableOf(Schema.of(type))));
+      members.add('"' + name + "\":\"" + value + '"');
+    }
+    String row = '{' + String.join(",", members) + '}';
+    Collections.reverse(members);
+    String reversedRow = '{' + String.join(",", members) + '}';
+
+    page = buildPage(row, row);
+    reorderedPage = buildPage(row, reversedRow);
+    schema = Schema.recordOf(TABLE_NAME, fields);
+    decoder = new ServiceNowRecordDecoder(schema, null, TABLE_NAME);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS_PER_PAGE)
+  public void mapPerRow(Blackhole blackhole) {
+    String responseBody = new String(page, StandardCharsets.UTF_8);
+    JsonObject jo = GSON.fromJson(responseBody, JsonObject.class);
+    JsonArray ja = jo.getAsJsonArray("result");
+    List<Map<String, Object>> rows = GSON.fromJson(ja, RESULT_TYPE);
+
+    for (Map<String, Object> row : rows) {
+      StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
+      for (Schema.Field field : schema.getFields()) {
+        recordBuilder.set(field.getName(), convertToValue(field.getName(), field.getSchema(), row));
+      }
+      blackhole.consume(recordBuilder.build());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS_PER_PAGE)
+  public void streamingDecoder(Blackhole blackhole) throws IOException {
+    decode(page, blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS_PER_PAGE)
+  public void reorderedMembers(Blackhole blackhole) throws IOException {
+    decode(reorderedPage, blackhole);
+  }
+
+  private void decode(byte[] page, Blackhole blackhole) throws IOException {
+    JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8));
+    reader.beginObject();
+    reader.nextName();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      blackhole.consume(decoder.decode(reader));
+    }
+  }
+
+  // Alternates the two rows, so that consecutive rows differ in order when they differ at all
+  private static byte[] buildPage(String evenRow, String oddRow) {
+    StringBuilder body = new StringBuilder("{\"result\":[");
+    for (int i = 0; i < ROWS_PER_PAGE; i++) {
+      body.append(i == 0 ? "" : ",").append(i % 2 == 0 ? evenRow : oddRow);
+    }
+    return body.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  // The conversion ServiceNowRecordReader performed on every field before the decoder was introduced
+  private static Object convertToValue(String fieldName, Schema fieldSchema, Map<String, Object> record) {
+    Object fieldValue = record.get(fieldName);
+    switch (fieldSchema.getType()) {
+      case STRING:
+        return String.valueOf(fieldValue);
+      case DOUBLE:
+        return isEmpty(fieldValue) ? null : Double.parseDouble(String.valueOf(fieldValue));
+      case INT:
+        return isEmpty(fieldValue) ? null : Integer.parseInt(String.valueOf(fieldValue));
+      case BOOLEAN:
+        return isEmpty(fieldValue) ? null : Boolean.parseBoolean(String.valueOf(fieldValue));
+      case UNION:
+        return convertToValue(fieldName, fieldSchema.getNonNullable(), record);
+      default:
+        throw new IllegalStateException("Unsupported type " + fieldSchema.getType());
+    }
+  }
+
+  private static boolean isEmpty(Object fieldValue) {
+    return fieldValue instanceof String && ((String) fieldValue).isEmpty();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+                 .include(ServiceNowRecordDecoderBenchmark.class.getSimpleName())
+                 .addProfiler(GCProfiler.class)
+                 .build()).run();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source;
+
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Tests for {@link ServiceNowRecordDecoder}.
+ */
+public class ServiceNowRecordDecoderTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "incident",
+    Schema.Field.of("number", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("priority", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("active", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("tablename", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testDecodeTypedValues() throws IOException {
+    StructuredRecord record = decode("{\"number\":\"INC0001\",\"priority\":\"2\",\"score\":\"1.5\"," +
+                                       "\"active\":\"true\",\"unknown\":{\"link\":\"x\"}}");
+
+    Assert.assertEquals("INC0001", record.get("number"));
+    Assert.assertEquals(2, (int) record.get("priority"));
+    Assert.assertEquals(1.5d, record.get("score"), 0d);
+    Assert.assertTrue(record.get("active"));
+    Assert.assertEquals("incident", record.get("tablename"));
+  }
+
+  @Test
+  public void testDecodeEmptyAndMissingValues() throws IOException {
+    StructuredRecord record = decode("{\"number\":\"\",\"priority\":\"\",\"active\":null}");
+
+    Assert.assertEquals("", record.get("number"));
+    Assert.assertNull(record.get("priority"));
+    Assert.assertNull(record.get("score"));
+    Assert.assertNull(record.get("active"));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testDecodeInvalidNumber() throws IOException {
+    decode("{\"priority\":\"high\"}");
+  }
+
+  @Test
+  public void testDecodeRowsInDifferentOrder() throws IOException {
+    ServiceNowRecordDecoder decoder = new ServiceNowRecordDecoder(SCHEMA, "tablename", "incident");
+    JsonReader reader = new JsonReader(new StringReader(
+      "[{\"number\":\"INC0001\",\"unknown\":\"x\",\"priority\":\"1\"}," +
+        "{\"priority\":\"2\",\"number\":\"INC0002\"}," +
+        "{\"unknown\":\"y\",\"number\":\"INC0003\",\"priority\":\"3\",\"active\":\"false\"}]"));
+    reader.beginArray();
+
+    StructuredRecord first = decoder.decode(reader);
+    StructuredRecord second = decoder.decode(reader);
+    StructuredRecord third = decoder.decode(reader);
+
+    Assert.assertEquals("INC0001", first.get("number"));
+    Assert.assertEquals(1, (int) first.get("priority"));
+    Assert.assertEquals("INC0002", second.get("number"));
+    Assert.assertEquals(2, (int) second.get("priority"));
+    Assert.assertEquals("INC0003", third.get("number"));
+    Assert.assertEquals(3, (int) third.get("priority"));
+    Assert.assertFalse(third.get("active"));
+  }
+
+  @Test
+  public void testDecodeLogicalTypes() throws IOException {
+    Schema schema = Schema.recordOf(
+      "incident",
+      Schema.Field.of("opened_at", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+      Schema.Field.of("due_date", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+      Schema.Field.of("cost", Schema.nullableOf(Schema.decimalOf(38, 9))),
+      Schema.Field.of("price", Schema.nullableOf(Schema.decimalOf(38, 9))));
+    ServiceNowRecordDecoder decoder = new ServiceNowRecordDecoder(schema, null, "incident");
+
+    StructuredRecord record = decoder.decode(new JsonReader(new StringReader(
+      "{\"opened_at\":\"2020-05-04 13:14:15\",\"due_date\":\"2020-06-01\",\"cost\":\"1234.5678\"," +
+        "\"price\":\"\"}")));
+
+    Assert.assertEquals(ZonedDateTime.of(2020, 5, 4, 13, 14, 15, 0, ZoneOffset.UTC),
+                        record.getTimestamp("opened_at", ZoneOffset.UTC));
+    Assert.assertEquals(LocalDate.of(2020, 6, 1), record.getDate("due_date"));
+    Assert.assertEquals(new BigDecimal("1234.567800000"), record.getDecimal("cost"));
+    Assert.assertNull(record.getDecimal("price"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testDecodeDecimalBeyondScaleFails() throws IOException {
+    Schema schema = Schema.recordOf(
+      "incident",
+      Schema.Field.of("cost", Schema.nullableOf(Schema.decimalOf(38, 9))));
+    ServiceNowRecordDecoder decoder = new ServiceNowRecordDecoder(schema, null, "incident");
+
+    decoder.decode(new JsonReader(new StringReader("{\"cost\":\"0.1234567891\"}")));
+  }
+
+  private static StructuredRecord decode(String json) throws IOException {
+    ServiceNowRecordDecoder decoder = new ServiceNowRecordDecoder(SCHEMA, "tablename", "incident");
+    return decoder.decode(new JsonReader(new StringReader(json)));
+  }
+}
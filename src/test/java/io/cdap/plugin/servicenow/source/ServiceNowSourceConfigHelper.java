@@ -46,6 +46,19 @@ public class ServiceNowSourceConfigHelper {
     private String valueType = "Actual";
     private String startDate = "";
     private String endDate = "";
+    private Integer maxConnectionsPerRoute = null;
+    private Integer pagesPerSplit = null;
+    private String paginationMode = null;
+    private String fields = null;
+    private Integer schemaSampleSize = null;
+    private String watermarkPath = null;
+    private String timeZone = null;
+    private String dateRangeField = null;
+    private String encodedQuery = null;
+    private Integer maxRequestsPerSecond = null;
+    private Integer expectedParallelism = null;
+    private Boolean hedgePageRequests = null;
+    private Integer pagesInFlight = null;
 
     public ConfigBuilder setReferenceName(String referenceName) {
       this.referenceName = referenceName;
@@ -112,9 +125,78 @@ public class ServiceNowSourceConfigHelper {
       return this;
     }
 
+    public ConfigBuilder setMaxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+      this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+      return this;
+    }
+
+    public ConfigBuilder setPagesPerSplit(Integer pagesPerSplit) {
+      this.pagesPerSplit = pagesPerSplit;
+      return this;
+    }
+
+    public ConfigBuilder setPaginationMode(String paginationMode) {
+      this.paginationMode = paginationMode;
+      return this;
+    }
+
+    public ConfigBuilder setFields(String fields) {
+      this.fields = fields;
+      return this;
+    }
+
+    public ConfigBuilder setSchemaSampleSize(Integer schemaSampleSize) {
+      this.schemaSampleSize = schemaSampleSize;
+      return this;
+    }
+
+    public ConfigBuilder setWatermarkPath(String watermarkPath) {
+      this.watermarkPath = watermarkPath;
+      return this;
+    }
+
+    public ConfigBuilder setTimeZone(String timeZone) {
+      this.timeZone = timeZone;
+      return this;
+    }
+
+    public ConfigBuilder setDateRangeField(String dateRangeField) {
+      this.dateRangeField = dateRangeField;
+      return this;
+    }
+
+    public ConfigBuilder setEncodedQuery(String encodedQuery) {
+      this.encodedQuery = encodedQuery;
+      return this;
+    }
+
+    public ConfigBuilder setMaxRequestsPerSecond(Integer maxRequestsPerSecond) {
+      this.maxRequestsPerSecond = maxRequestsPerSecond;
+      return this;
+    }
+
+    public ConfigBuilder setExpectedParallelism(Integer expectedParallelism) {
+      this.expectedParallelism = expectedParallelism;
+      return this;
+    }
+
+    public ConfigBuilder setHedgePageRequests(Boolean hedgePageRequests) {
+      this.hedgePageRequests = hedgePageRequests;
+      return this;
+    }
+
+    public ConfigBuilder setPagesInFlight(Integer pagesInFlight) {
+      this.pagesInFlight = pagesInFlight;
+      return this;
+    }
+
     public ServiceNowSourceConfig build() {
       return new ServiceNowSourceConfig(referenceName, queryMode, applicationName, tableNameField, tableName,
-        clientId, clientSecret, restApiEndpoint, user, password, valueType, startDate, endDate);
+        clientId, clientSecret, restApiEndpoint, user, password, valueType, startDate, endDate,
+        maxConnectionsPerRoute, pagesPerSplit, paginationMode, fields, schemaSampleSize,
+        watermarkPath, timeZone, dateRangeField, encodedQuery, maxRequestsPerSecond, expectedParallelism,
+        hedgePageRequests,
+        pagesInFlight);
     }
 
   }
@@ -29,6 +29,10 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
 
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static io.cdap.plugin.servicenow.source.ServiceNowSourceConfigHelper.TEST_API_ENDPOINT;
 import static io.cdap.plugin.servicenow.source.ServiceNowSourceConfigHelper.TEST_CLIENT_ID;
 import static io.cdap.plugin.servicenow.source.ServiceNowSourceConfigHelper.TEST_CLIENT_SECRET;
@@ -38,14 +42,25 @@ import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_APPLICATION_NAME;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_CLIENT_ID;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_CLIENT_SECRET;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_DATE_RANGE_FIELD;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_ENCODED_QUERY;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_END_DATE;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_EXPECTED_PARALLELISM;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_MAX_CONNECTIONS_PER_ROUTE;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_MAX_REQUESTS_PER_SECOND;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_PAGES_IN_FLIGHT;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_PAGES_PER_SPLIT;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_PAGINATION_MODE;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_PASSWORD;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_QUERY_MODE;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_SCHEMA_SAMPLE_SIZE;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_START_DATE;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_TABLE_NAME;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_TABLE_NAME_FIELD;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_TIME_ZONE;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_USER;
 import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_VALUE_TYPE;
+import static io.cdap.plugin.servicenow.source.util.ServiceNowConstants.PROPERTY_WATERMARK_PATH;
 
 /**
  * Tests for {@link ServiceNowSourceConfig}.
@@ -448,6 +463,295 @@ public class ServiceNowSourceConfigTest {
     Assert.assertEquals(1, collector.getValidationFailures().size());
   }
 
+  @Test
+  public void testDateTimeRange() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setStartDate("2020-03-01 10:00:00")
+      .setEndDate("2020-03-01 10:15:00")
+      .setTimeZone("America/New_York")
+      .build(), collector);
+
+    config.validate(collector);
+
+    Assert.assertEquals(0, collector.getValidationFailures().size());
+    Assert.assertEquals(ZoneId.of("America/New_York"), config.getTimeZone());
+  }
+
+  @Test
+  public void testDateTimeRangeMixedFormats() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setStartDate("2020-03-01 10:00:00")
+      .setEndDate("2020-03-02")
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_END_DATE, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testDateTimeRangeEmpty() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setStartDate("2020-03-01 10:00:00")
+      .setEndDate("2020-03-01 10:00:00")
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_START_DATE, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testTimeZoneInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setTimeZone("Mars/Olympus_Mons")
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_TIME_ZONE, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testDateRangeFieldInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setDateRangeField("sys_updated_on^ORactive=true")
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_DATE_RANGE_FIELD, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testEncodedQueryInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setEncodedQuery("active=true^NQpriority=1")
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_ENCODED_QUERY, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testEncodedQueryWithOrConditions() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setEncodedQuery(" active=true^priority=1^ORpriority=2 ")
+      .build(), collector);
+
+    config.validate(collector);
+
+    Assert.assertEquals(0, collector.getValidationFailures().size());
+    Assert.assertEquals("active=true^priority=1^ORpriority=2", config.getEncodedQuery());
+  }
+
+  @Test
+  public void testMaxConnectionsPerRouteInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setMaxConnectionsPerRoute(0)
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_MAX_CONNECTIONS_PER_ROUTE, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testPagesPerSplitInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setPagesPerSplit(0)
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_PAGES_PER_SPLIT, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testSchemaSampleSizeInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setSchemaSampleSize(0)
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_SCHEMA_SAMPLE_SIZE, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testMaxRequestsPerSecondInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setMaxRequestsPerSecond(0)
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_MAX_REQUESTS_PER_SECOND, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testExpectedParallelismInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setExpectedParallelism(0)
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_EXPECTED_PARALLELISM, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testPagesInFlightInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setPagesInFlight(0)
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_PAGES_IN_FLIGHT, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testPaginationModeInvalid() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setPaginationMode("Cursor")
+      .build(), collector);
+
+    try {
+      config.validate(collector);
+      collector.getOrThrowException();
+    } catch (ValidationException e) {
+      Assert.assertEquals(PROPERTY_PAGINATION_MODE, e.getFailures().get(0).getCauses().get(0)
+        .getAttribute(CauseAttributes.STAGE_CONFIG));
+    }
+
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testGetFields() {
+    Assert.assertEquals(Collections.emptyList(), ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setFields(" ")
+      .build().getFields());
+    Assert.assertEquals(Arrays.asList("number", "priority"), ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setFields("number, priority,,number")
+      .build().getFields());
+  }
+
+  @Test
+  public void testWatermarkPathRequiresKeysetPagination() {
+    for (String paginationMode : Arrays.asList(null, "Offset", "Time Window")) {
+      MockFailureCollector collector = new MockFailureCollector();
+      ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+        .setPaginationMode(paginationMode)
+        .setWatermarkPath("file:///tmp/watermarks.json")
+        .build(), collector);
+
+      try {
+        config.validate(collector);
+        collector.getOrThrowException();
+      } catch (ValidationException e) {
+        Assert.assertEquals(PROPERTY_WATERMARK_PATH, e.getFailures().get(0).getCauses().get(0)
+          .getAttribute(CauseAttributes.STAGE_CONFIG));
+      }
+
+      Assert.assertEquals(1, collector.getValidationFailures().size());
+    }
+  }
+
+  @Test
+  public void testWatermarkPathWithKeysetPagination() {
+    MockFailureCollector collector = new MockFailureCollector();
+    ServiceNowSourceConfig config = withServiceNowValidationMock(ServiceNowSourceConfigHelper.newConfigBuilder()
+      .setPaginationMode("Keyset")
+      .setWatermarkPath("file:///tmp/watermarks.json")
+      .build(), collector);
+
+    config.validate(collector);
+    Assert.assertEquals(0, collector.getValidationFailures().size());
+  }
+
   private ServiceNowSourceConfig withServiceNowValidationMock(ServiceNowSourceConfig config,
                                                               FailureCollector collector) {
     ServiceNowSourceConfig spy = Mockito.spy(config);
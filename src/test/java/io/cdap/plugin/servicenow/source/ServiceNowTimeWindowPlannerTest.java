@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source;
+
+import io.cdap.plugin.servicenow.source.util.Util;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link ServiceNowTimeWindowPlanner}.
+ */
+public class ServiceNowTimeWindowPlannerTest {
+  private static final Instant START = Instant.parse("2019-01-01T00:00:00Z");
+
+  @Test
+  public void testBalancedSplitsOverSkewedHistory() throws IOException {
+    // A year of history with a quiet background and a busy week
+    List<Instant> updates = new ArrayList<>();
+    for (int hour = 0; hour < 365 * 24; hour++) {
+      int perHour = hour >= 2000 && hour < 2168 ? 300 : 2;
+      for (int i = 0; i < perHour; i++) {
+        updates.add(START.plus(hour, ChronoUnit.HOURS).plusSeconds(i));
+      }
+    }
+    Instant end = START.plus(365, ChronoUnit.DAYS);
+
+    int recordsPerSplit = 5000;
+    ServiceNowTimeWindowPlanner planner = new ServiceNowTimeWindowPlanner(
+      (from, to) -> count(updates, from, to), recordsPerSplit);
+    List<ServiceNowTimeWindowPlanner.Split> splits = planner.plan(START, end, updates.size());
+
+    Assert.assertNull(splits.get(0).getLowerBound());
+    List<Integer> splitSizes = new ArrayList<>();
+    for (int i = 0; i < splits.size(); i++) {
+      Instant lower = i == 0 ? START : Util.parseDateTime(splits.get(i).getLowerBound());
+      Instant upper = i == splits.size() - 1 ? end : Util.parseDateTime(splits.get(i + 1).getLowerBound());
+      Assert.assertTrue(upper.isAfter(lower));
+      splitSizes.add(count(updates, lower, upper));
+      // The record count of each split is the one it reads
+      Assert.assertEquals((int) splitSizes.get(i), splits.get(i).getRecordCount());
+    }
+
+    Assert.assertEquals(updates.size(), splitSizes.stream().mapToInt(Integer::intValue).sum());
+    Assert.assertTrue(Collections.max(splitSizes) <= recordsPerSplit);
+    // Splits are packed, no two consecutive splits would have fit in one
+    for (int i = 0; i < splitSizes.size() - 1; i++) {
+      Assert.assertTrue(splitSizes.get(i) + splitSizes.get(i + 1) > recordsPerSplit);
+    }
+  }
+
+  @Test
+  public void testSingleSplitForSmallTable() throws IOException {
+    ServiceNowTimeWindowPlanner planner = new ServiceNowTimeWindowPlanner((from, to) -> {
+      throw new AssertionError("No count expected");
+    }, 5000);
+
+    List<ServiceNowTimeWindowPlanner.Split> splits = planner.plan(START, START.plus(30, ChronoUnit.DAYS), 4000);
+    Assert.assertEquals(1, splits.size());
+    Assert.assertNull(splits.get(0).getLowerBound());
+    Assert.assertEquals(4000, splits.get(0).getRecordCount());
+  }
+
+  @Test
+  public void testBusyHourMakesLargerSplit() throws IOException {
+    // 12000 records updated within the same hour cannot be told apart, their split holds them all
+    List<Instant> updates = new ArrayList<>();
+    for (int i = 0; i < 12000; i++) {
+      updates.add(START.plus(10, ChronoUnit.HOURS).plusMillis(i));
+    }
+    for (int hour = 20; hour < 24 * 10; hour++) {
+      updates.add(START.plus(hour, ChronoUnit.HOURS));
+    }
+    Instant end = START.plus(10, ChronoUnit.DAYS);
+
+    List<ServiceNowTimeWindowPlanner.Split> splits = new ServiceNowTimeWindowPlanner(
+      (from, to) -> count(updates, from, to), 5000).plan(START, end, updates.size());
+
+    Assert.assertEquals(2, splits.size());
+    Assert.assertEquals(12000, splits.get(0).getRecordCount());
+    Assert.assertEquals(updates.size() - 12000, splits.get(1).getRecordCount());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCountFailure() throws IOException {
+    new ServiceNowTimeWindowPlanner((from, to) -> null, 5000)
+      .plan(START, START.plus(30, ChronoUnit.DAYS), 6000);
+  }
+
+  private static int count(List<Instant> updates, Instant from, Instant to) {
+    return (int) updates.stream().filter(update -> !update.isBefore(from) && update.isBefore(to)).count();
+  }
+}
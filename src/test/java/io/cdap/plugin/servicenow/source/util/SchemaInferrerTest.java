@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link SchemaInferrer}.
+ */
+public class SchemaInferrerTest {
+
+  @Test
+  public void testInferColumns() {
+    Map<String, Object> sparse = new HashMap<>();
+    sparse.put("number", "INC0002");
+    sparse.put("close_code", "Solved");
+    sparse.put("active", null);
+    List<Map<String, Object>> records = Arrays.asList(
+      ImmutableMap.<String, Object>builder()
+        .put("number", "INC0001").put("priority", "1").put("business_duration", "").put("cost", "12")
+        .put("active", "true").put("zip", "02134").put("reassignment_count", "0").build(),
+      sparse,
+      ImmutableMap.<String, Object>builder()
+        .put("number", "INC0003").put("priority", "4").put("cost", "12.75")
+        .put("active", "false").put("zip", "10001").put("reassignment_count", "99999999999").build());
+
+    Map<String, String> types = toTypes(new SchemaInferrer().inferColumns(records, true));
+
+    Map<String, String> expected = new LinkedHashMap<>();
+    expected.put("number", "string");
+    expected.put("priority", "integer");
+    expected.put("business_duration", "string");
+    expected.put("cost", "decimal");
+    expected.put("active", "boolean");
+    expected.put("zip", "string");
+    // Beyond the range of an integer
+    expected.put("reassignment_count", "decimal");
+    expected.put("close_code", "string");
+    Assert.assertEquals(expected, types);
+    Assert.assertEquals(Arrays.asList(expected.keySet().toArray()), Arrays.asList(types.keySet().toArray()));
+  }
+
+  @Test
+  public void testInferColumnsWithoutTypes() {
+    List<Map<String, Object>> records = Arrays.asList(
+      ImmutableMap.of("priority", "1", "active", "true"),
+      ImmutableMap.of("priority", "2", "cost", "1,250.00"));
+
+    Map<String, String> types = toTypes(new SchemaInferrer().inferColumns(records, false));
+
+    Assert.assertEquals(ImmutableMap.of("priority", "string", "active", "string", "cost", "string"), types);
+  }
+
+  private static Map<String, String> toTypes(List<ServiceNowColumn> columns) {
+    return columns.stream().collect(Collectors.toMap(ServiceNowColumn::getFieldName, ServiceNowColumn::getTypeName,
+                                                     (a, b) -> a, LinkedHashMap::new));
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ServiceNowDateTimeParser}.
+ */
+public class ServiceNowDateTimeParserTest {
+
+  @Test
+  public void testParseTimestampMicros() {
+    ServiceNowDateTimeParser parser = new ServiceNowDateTimeParser();
+
+    Assert.assertEquals(toMicros("2020-02-29T23:59:59Z"), parser.parseTimestampMicros("2020-02-29 23:59:59"));
+    // Same day as the previous value
+    Assert.assertEquals(toMicros("2020-02-29T00:00:01Z"), parser.parseTimestampMicros("2020-02-29 00:00:01"));
+    Assert.assertEquals(toMicros("1969-12-31T12:30:00Z"), parser.parseTimestampMicros("1969-12-31 12:30:00"));
+  }
+
+  @Test
+  public void testParseDate() {
+    ServiceNowDateTimeParser parser = new ServiceNowDateTimeParser();
+
+    Assert.assertEquals(LocalDate.of(2021, 3, 1).toEpochDay(), parser.parseDate("2021-03-01"));
+    Assert.assertEquals(LocalDate.of(1970, 1, 1).toEpochDay(), parser.parseDate("1970-01-01"));
+  }
+
+  @Test
+  public void testInvalidValues() {
+    ServiceNowDateTimeParser parser = new ServiceNowDateTimeParser();
+    parser.parseTimestampMicros("2021-02-28 10:00:00");
+
+    assertInvalidTimestamp(parser, "2021-02-29 10:00:00");
+    assertInvalidTimestamp(parser, "2021-02-28 24:00:00");
+    assertInvalidTimestamp(parser, "2021-02-28T10:00:00");
+    assertInvalidTimestamp(parser, "2021-02-28 10:00");
+    assertInvalidTimestamp(parser, "02/28/2021 10:00:00");
+    assertInvalidTimestamp(parser, "2021-02-2a 10:00:00");
+  }
+
+  private static void assertInvalidTimestamp(ServiceNowDateTimeParser parser, String value) {
+    try {
+      parser.parseTimestampMicros(value);
+      Assert.fail("Expected " + value + " to be rejected");
+    } catch (DateTimeParseException e) {
+      Assert.assertEquals(value, e.getParsedString());
+    }
+  }
+
+  private static long toMicros(String instant) {
+    return TimeUnit.SECONDS.toMicros(Instant.parse(instant).getEpochSecond());
+  }
+}
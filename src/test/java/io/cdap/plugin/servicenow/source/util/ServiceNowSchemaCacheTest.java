@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link ServiceNowSchemaCache}.
+ */
+public class ServiceNowSchemaCacheTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testPutAndGet() throws IOException {
+    ServiceNowSchemaCache cache = new ServiceNowSchemaCache(new File(temporaryFolder.getRoot(), "instance"));
+    cache.put("incident", new ServiceNowSchemaCache.Entry(
+      Arrays.asList("incident", "task"), "2020-05-01 10:00:00/42",
+      Arrays.asList(new ServiceNowColumn("number", "string"), new ServiceNowColumn("priority", "integer"))));
+
+    ServiceNowSchemaCache.Entry entry = cache.get("incident");
+    Assert.assertNotNull(entry);
+    Assert.assertEquals(Arrays.asList("incident", "task"), entry.getTables());
+    Assert.assertEquals("2020-05-01 10:00:00/42", entry.getVersion());
+    Assert.assertEquals("priority", entry.getColumns().get(1).getFieldName());
+    Assert.assertEquals("integer", entry.getColumns().get(1).getTypeName());
+    Assert.assertNull(cache.get("problem"));
+  }
+
+  @Test
+  public void testUnreadableEntryIsIgnored() throws IOException {
+    File directory = temporaryFolder.newFolder("instance");
+    Files.write(new File(directory, "incident.json").toPath(), "{\"version\":".getBytes(StandardCharsets.UTF_8));
+
+    ServiceNowSchemaCache cache = new ServiceNowSchemaCache(directory);
+    Assert.assertNull(cache.get("incident"));
+
+    cache.put("incident", new ServiceNowSchemaCache.Entry(Collections.singletonList("incident"), "v1",
+                                                          Collections.emptyList()));
+    Assert.assertEquals("v1", cache.get("incident").getVersion());
+  }
+}
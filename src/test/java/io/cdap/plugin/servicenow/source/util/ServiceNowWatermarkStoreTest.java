@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.servicenow.source.util;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Tests for {@link ServiceNowWatermarkStore}.
+ */
+public class ServiceNowWatermarkStoreTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadMissingFile() throws IOException {
+    File file = new File(temporaryFolder.getRoot(), "watermarks.json");
+
+    Assert.assertTrue(new ServiceNowWatermarkStore(file.toURI().toString(), new Configuration()).read().isEmpty());
+  }
+
+  @Test
+  public void testWriteAndReplace() throws IOException {
+    File file = new File(temporaryFolder.getRoot(), "watermarks.json");
+    ServiceNowWatermarkStore store = new ServiceNowWatermarkStore(file.toURI().toString(), new Configuration());
+
+    store.write(ImmutableMap.of("incident", "2020-05-01 10:00:00"));
+    store.write(ImmutableMap.of("incident", "2020-05-01 11:00:00", "problem", "2020-05-01 11:00:00"));
+
+    Assert.assertEquals(ImmutableMap.of("incident", "2020-05-01 11:00:00", "problem", "2020-05-01 11:00:00"),
+                        store.read());
+    // Only the watermark file is left behind
+    Assert.assertArrayEquals(new String[]{"watermarks.json"},
+                             temporaryFolder.getRoot().list((dir, name) -> !name.endsWith(".crc")));
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadInvalidFile() throws IOException {
+    File file = temporaryFolder.newFile("watermarks.json");
+    Files.write(file.toPath(), "{\"incident\":".getBytes(StandardCharsets.UTF_8));
+
+    new ServiceNowWatermarkStore(file.toURI().toString(), new Configuration()).read();
+  }
+}